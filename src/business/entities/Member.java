@@ -3,6 +3,7 @@ package business.entities;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
 /**
  * 
  * @author Brahma Dathan and Sarnath Ramnath
@@ -23,12 +24,17 @@ import java.io.ObjectOutputStream;
  * and are not responsible for any loss or damage resulting from its use.  
  */
 import java.io.Serializable;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Predicate;
 
-import business.entities.iterators.FilteredTransactionIterator;
+import business.entities.helpers.IdAllocator;
 
 /**
  * Member represents a member of the Coop.
@@ -39,13 +45,15 @@ public class Member implements Serializable {
     private String name;
     private String address;
     private String phone;
-    private Calendar dateJoined;
+    private long dateJoined;
     private String fee;
     private String id;
     private static final String MEMBER_STRING = "M";
 
-    private List<Transaction> transactions = new LinkedList<Transaction>();
-    private static int idCounter;
+    private List<Transaction> transactions = new ArrayList<Transaction>();
+    private TransactionArchive archive;
+    private static final int ID_BLOCK_SIZE = 32;
+    private static IdAllocator ids = new IdAllocator(ID_BLOCK_SIZE);
 
     /**
      * Creates a single member
@@ -61,13 +69,17 @@ public class Member implements Serializable {
         this.name = name;
         this.address = address;
         this.phone = phone;
-        this.dateJoined = Calendar.getInstance();
+        this.dateJoined = System.currentTimeMillis();
         this.fee = fee;
-        id = MEMBER_STRING + ++idCounter;
+        id = MEMBER_STRING + ids.next();
     }
 
     /**
-     * Gets an iterator to a collection of selected transactions
+     * Gets an iterator to a collection of selected transactions. Transactions
+     * are kept in time order, so the start of the range is found by binary
+     * search and the iterator stops at the end of the range. Archived
+     * transactions are read back from disk only if the range reaches them, and
+     * then only the part of the segment file that covers the range.
      * 
      * @author Nalongsone Danddank
      * 
@@ -79,21 +91,157 @@ public class Member implements Serializable {
      */
     public Iterator<Transaction> getTransactionsBetweenDates(Calendar beginDate,
             Calendar endDate) {
-        return new FilteredTransactionIterator(transactions.iterator(),
-                transaction -> transaction.betweenDates(beginDate, endDate));
+        List<Transaction> recent = between(transactions, beginDate, endDate);
+        if (archive == null
+                || archive.getNewestTime() <= beginDate.getTimeInMillis()) {
+            return recent.iterator();
+        }
+        return merge(loadArchive(beginDate, endDate), recent).iterator();
     }
 
     /**
-     * Returns the list of all transactions for this member.
+     * Gets an iterator to the archived transactions between two dates. The
+     * transactions still held in memory are not included.
+     * 
+     * @param beginDate the transactions must be after this date
+     * @param endDate   the transactions must be before this date
+     * @return the iterator to the archived transactions in time order
+     */
+    public Iterator<Transaction> getArchivedTransactionsBetweenDates(
+            Calendar beginDate, Calendar endDate) {
+        if (archive == null) {
+            return Collections.emptyIterator();
+        }
+        return loadArchive(beginDate, endDate).iterator();
+    }
+
+    /*
+     * Merges the archived and the recent transactions, both in time order,
+     * in one pass. A transaction that was finalized after an archive run may
+     * be older than the newest archived one, so the two runs can overlap.
+     */
+    private static List<Transaction> merge(List<Transaction> archived,
+            List<Transaction> recent) {
+        List<Transaction> merged = new ArrayList<Transaction>(
+                archived.size() + recent.size());
+        int first = 0;
+        int second = 0;
+        while (first < archived.size() && second < recent.size()) {
+            if (recent.get(second).getTimeInMillis() < archived.get(first)
+                    .getTimeInMillis()) {
+                merged.add(recent.get(second++));
+            } else {
+                merged.add(archived.get(first++));
+            }
+        }
+        merged.addAll(archived.subList(first, archived.size()));
+        merged.addAll(recent.subList(second, recent.size()));
+        return merged;
+    }
+
+    /*
+     * Returns the part of a time ordered list that lies between the dates.
+     */
+    private static List<Transaction> between(List<Transaction> transactions,
+            Calendar beginDate, Calendar endDate) {
+        int first = firstIndex(transactions,
+                transaction -> transaction.after(beginDate));
+        int last = firstIndex(transactions,
+                transaction -> !transaction.before(endDate));
+        return transactions.subList(first, Math.max(first, last));
+    }
+
+    /*
+     * Returns the index of the first transaction that satisfies the predicate,
+     * or the number of transactions if none does. The predicate must be false
+     * for a prefix of the time ordered list and true for the rest.
+     */
+    private static int firstIndex(List<Transaction> transactions,
+            Predicate<Transaction> predicate) {
+        int low = 0;
+        int high = transactions.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (predicate.test(transactions.get(middle))) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the list of all transactions for this member, including the
+     * archived ones.
      * 
      * @return the iterator to the list of Transaction objects
      */
     public Iterator<Transaction> getTransactions() {
-        return transactions.iterator();
+        if (archive == null) {
+            return transactions.iterator();
+        }
+        return merge(loadArchive(null, null), transactions).iterator();
     }
 
+    /**
+     * Moves the transactions made before a given time out of memory and into
+     * the member's segment file in the archive directory.
+     * 
+     * @param time      transactions before this time are archived
+     * @param directory the directory holding the segment files
+     * @return the transactions archived, in time order
+     * @throws IOException if the segment file cannot be written
+     */
+    public List<Transaction> archiveTransactionsBefore(long time,
+            String directory) throws IOException {
+        int count = firstIndex(transactions,
+                transaction -> transaction.getTimeInMillis() >= time);
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        if (archive == null) {
+            archive = new TransactionArchive(
+                    Paths.get(directory, id + ".seg").toString());
+        }
+        List<Transaction> archived = new ArrayList<Transaction>(
+                transactions.subList(0, count));
+        archive.append(archived);
+        transactions.subList(0, count).clear();
+        return archived;
+    }
+
+    /*
+     * Reads back the archived transactions between two dates; null dates leave
+     * the range open.
+     */
+    private List<Transaction> loadArchive(Calendar beginDate,
+            Calendar endDate) {
+        try {
+            return archive.load(
+                    beginDate == null ? Long.MIN_VALUE
+                            : beginDate.getTimeInMillis(),
+                    endDate == null ? Long.MAX_VALUE
+                            : endDate.getTimeInMillis());
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /**
+     * Adds a transaction to the member's history, keeping the history in time
+     * order. Transactions normally arrive in order and go to the end.
+     * 
+     * @param transaction the transaction to be added
+     * @return true if the transaction could be added
+     */
     public boolean addTransaction(Transaction transaction) {
-        return transactions.add(transaction);
+        int index = transactions.size();
+        while (index > 0 && transactions.get(index - 1).after(transaction)) {
+            index--;
+        }
+        transactions.add(index, transaction);
+        return true;
     }
 
     /**
@@ -136,7 +284,14 @@ public class Member implements Serializable {
      * @return the dateJoined
      */
     public String getDateJoined() {
-        return dateJoined.getTime().toString();
+        return new Date(dateJoined).toString();
+    }
+
+    /**
+     * @return the instant the member joined
+     */
+    public Instant getJoinTime() {
+        return Instant.ofEpochMilli(dateJoined);
     }
 
     /**
@@ -172,7 +327,8 @@ public class Member implements Serializable {
     }
 
     /**
-     * Setter for phone
+     * Setter for phone. Members held by the Store should have their phone
+     * changed through Store.changePhone() so that the phone index follows.
      * 
      * @param newName member's new phone
      */
@@ -184,7 +340,7 @@ public class Member implements Serializable {
      * @param dateJoined the dateJoined to set
      */
     public void setDateJoined(Calendar dateJoined) {
-        this.dateJoined = dateJoined;
+        this.dateJoined = dateJoined.getTimeInMillis();
     }
 
     /**
@@ -232,12 +388,12 @@ public class Member implements Serializable {
     }
 
     public static void save(ObjectOutputStream output) throws IOException {
-        output.writeObject(idCounter);
+        output.writeObject(ids.getHighWater());
     }
 
     public static void retrieve(ObjectInputStream input)
             throws IOException, ClassNotFoundException {
-        idCounter = (int) input.readObject();
+        ids.restore(((Number) input.readObject()).longValue());
     }
 
 }
\ No newline at end of file
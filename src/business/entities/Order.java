@@ -23,7 +23,10 @@ import java.io.ObjectOutputStream;
  * and are not responsible for any loss or damage resulting from its use.  
  */
 import java.io.Serializable;
-import java.util.Calendar;
+import java.time.Instant;
+import java.util.Date;
+
+import business.entities.helpers.IdAllocator;
 
 /**
  * Order of a product.
@@ -32,12 +35,13 @@ public class Order implements Serializable {
     private static final long serialVersionUID = 1L;
     private String id;
     private Product productOrdered;
-    private Calendar dateOrdered;
+    private long dateOrdered;
     private int qtyOrdered;
     private boolean orderOutstanding;
     private static final String Order_Num = "O";
 
-    private static int idCounter;
+    private static final int ID_BLOCK_SIZE = 32;
+    private static IdAllocator ids = new IdAllocator(ID_BLOCK_SIZE);
 
     /**
      * @param id
@@ -48,10 +52,10 @@ public class Order implements Serializable {
     public Order(Product productOrdered, int qtyOrdered) {
         super();
         this.productOrdered = productOrdered;
-        this.dateOrdered = Calendar.getInstance();
+        this.dateOrdered = System.currentTimeMillis();
         this.qtyOrdered = qtyOrdered;
         this.orderOutstanding = true;
-        id = Order_Num + ++idCounter;
+        id = Order_Num + ids.next();
     }
 
     /**
@@ -92,7 +96,14 @@ public class Order implements Serializable {
      * @return the dateOrdered
      */
     public String getDateOrdered() {
-        return dateOrdered.getTime().toString();
+        return new Date(dateOrdered).toString();
+    }
+
+    /**
+     * @return the instant the order was placed
+     */
+    public Instant getOrderTime() {
+        return Instant.ofEpochMilli(dateOrdered);
     }
 
     /**
@@ -105,7 +116,8 @@ public class Order implements Serializable {
     @Override
     public String toString() {
         return "Order [id=" + id + ", productOrdered=" + productOrdered
-                + ", dateOrdered=" + dateOrdered + ", qtyOrdered=" + qtyOrdered
+                + ", dateOrdered=" + getDateOrdered() + ", qtyOrdered="
+                + qtyOrdered
                 + "]";
     }
 
@@ -147,11 +159,11 @@ public class Order implements Serializable {
     }
 
     public static void save(ObjectOutputStream output) throws IOException {
-        output.writeObject(idCounter);
+        output.writeObject(ids.getHighWater());
     }
 
     public static void retrieve(ObjectInputStream input)
             throws IOException, ClassNotFoundException {
-        idCounter = (int) input.readObject();
+        ids.restore(((Number) input.readObject()).longValue());
     }
 }
@@ -1,35 +1,56 @@
 package business.entities;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
+import business.entities.helpers.Money;
+import business.entities.helpers.ProductTable;
+
 /**
- * product represents a product of the Store.
+ * product represents a product of the Store. The name and id are held by the
+ * object; stock on hand, reorder level and price in cents live in a row of a
+ * ProductTable shared by the whole inventory.
  */
 public class Product implements Serializable {
     private static final long serialVersionUID = 1L;
     private String name;
     private String id;
-    private String price;
-    private int reorderLevel;
-    private int stockOnHand;
+    private ProductTable table;
+    private int ordinal;
 
     /**
      * Creates a product with the name, given id, current price, reorder level,
-     * and stock on hand.
+     * and stock on hand. The numeric fields are stored in a row of the table.
      * 
      * @param name         product name
      * @param id           product id
-     * @param price        product currentPrice
+     * @param price        product currentPrice in cents
      * @param reorderLevel product reorderLevel
      * @param stockInHand  product stockOnHand
+     * @param table        the table holding the numeric fields of products
      */
-    public Product(String name, String id, String price, int reorderLevel,
-            int stockInHand) {
+    public Product(String name, String id, long price, int reorderLevel,
+            int stockInHand, ProductTable table) {
         this.name = name;
         this.id = id;
-        this.stockOnHand = stockInHand;
-        this.price = price;
-        this.reorderLevel = reorderLevel;
+        this.table = table;
+        this.ordinal = table.add(id, name, stockInHand, reorderLevel, price);
+    }
+
+    /**
+     * Creates a view of a product that is already stored in the table. Use
+     * ProductTable.getProduct() to get the product shared by the row.
+     * 
+     * @param table   the table holding the product
+     * @param ordinal the row of the product in the table
+     */
+    public Product(ProductTable table, int ordinal) {
+        this.name = table.getName(ordinal);
+        this.id = table.getId(ordinal);
+        this.table = table;
+        this.ordinal = ordinal;
     }
 
     /**
@@ -47,52 +68,90 @@ public class Product implements Serializable {
     }
 
     /**
-     * @return the price
+     * @return the price in cents
      */
-    public String getPrice() {
-        return price;
+    public long getPrice() {
+        return table.getPrice(ordinal);
     }
 
     /**
-     * @param price the price to set
+     * Sets the price from now on. The old price stays in the price history.
+     * 
+     * @param price the price to set, in cents
      */
-    public void setPrice(String price) {
-        this.price = price;
+    public void setPrice(long price) {
+        table.changePrice(ordinal, System.currentTimeMillis(), price);
+    }
+
+    /**
+     * Returns the price the product had at a given time
+     * 
+     * @param time milliseconds since the epoch
+     * @return the price in cents
+     */
+    public long getPriceAt(long time) {
+        return table.getPriceAt(ordinal, time);
     }
 
     /**
      * @return the reorderLevel
      */
     public int getReorderLevel() {
-        return reorderLevel;
+        return table.getReorderLevel(ordinal);
     }
 
     /**
      * @param reorderLevel the reorderLevel to set
      */
     public void setReorderLevel(int reorderLevel) {
-        this.reorderLevel = reorderLevel;
+        table.setReorderLevel(ordinal, reorderLevel);
     }
 
     /**
      * @return the stockOnHand
      */
     public int getStockOnHand() {
-        return stockOnHand;
+        return table.getStockOnHand(ordinal);
     }
 
     /**
      * @param stockOnHand the stockOnHand to set
      */
     public void setStockOnHand(int stockOnHand) {
-        this.stockOnHand = stockOnHand;
+        table.setStockOnHand(ordinal, stockOnHand);
+    }
+
+    /**
+     * Changes the stock on hand atomically, so that concurrent sales and
+     * shipments are never lost
+     * 
+     * @param delta the change in stock, negative for a sale
+     * @return the stock on hand after the change
+     */
+    public int addStockOnHand(int delta) {
+        return table.addStockOnHand(ordinal, delta);
+    }
+
+    /**
+     * @return the table holding the product's row
+     */
+    ProductTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return the ordinal of the product's row in the product table
+     */
+    public int getOrdinal() {
+        return ordinal;
     }
 
     @Override
     public String toString() {
         return "Product [name=" + name + ", id=" + id + ", stockOnHand="
-                + stockOnHand + ", currentPrice=" + price + ", reorderLevel="
-                + reorderLevel + "]";
+                + getStockOnHand() + ", currentPrice="
+                + Money.format(getPrice()) + ", reorderLevel="
+                + getReorderLevel() + "]";
     }
 
     @Override
@@ -128,4 +187,17 @@ public class Product implements Serializable {
         }
         return true;
     }
+
+    /*
+     * A product read back becomes the shared product of its row again.
+     */
+    private void readObject(ObjectInputStream input)
+            throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        if (table == null) {
+            throw new InvalidObjectException(
+                    "Product " + id + " was saved in an older format");
+        }
+        table.putProduct(ordinal, this);
+    }
 }
\ No newline at end of file
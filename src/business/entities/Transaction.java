@@ -19,19 +19,30 @@ package business.entities;
  * The authors do not make any claims regarding the correctness of the code in this module
  * and are not responsible for any loss or damage resulting from its use.  
  */
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Calendar;
-import java.util.GregorianCalendar;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.NoSuchElementException;
 
 import business.entities.helpers.LineItem;
+import business.entities.helpers.Money;
+import business.entities.helpers.ProductTable;
 
 /**
  * Represents a record of items purchased by a member at checkout as a single
  * transaction. Only allows products to be added; transaction must be voided if
- * input error occurs.
+ * input error occurs. The items are packed into parallel arrays of product
+ * ordinal, amount purchased and unit price at the time of sale, rather than
+ * kept as a list of LineItem objects. The arrays grow by doubling, so adding n
+ * items copies O(n) entries in all, and the arrays are trimmed to the items
+ * when the transaction is finalized.
  * 
  * @author Nalongsone Danddank and G.D.Ponsness
  * @author (Modified from code written by Brahma Dathan and Sarnath Ramnath)
@@ -39,18 +50,74 @@ import business.entities.helpers.LineItem;
 
 public class Transaction implements Serializable {
 	private static final long serialVersionUID = 1L;
-	private Calendar date;
-	private double purchaseTotal;
-	private List<LineItem> groceryItems = new LinkedList<LineItem>();
+	private long date;
+	private long purchaseTotal;
+	private ProductTable productTable;
+	private int items;
+	private int[] productOrdinals = new int[0];
+	private int[] purchaseAmounts = new int[0];
+	private long[] purchasePrices = new long[0];
 
 	/**
 	 * Initializes a new transaction.
 	 */
 	public Transaction() {
-		date = new GregorianCalendar();
+		date = System.currentTimeMillis();
 		purchaseTotal = 0;
 	}
 
+	/**
+	 * Writes the transaction in the compact form used by the transaction
+	 * archive: the date, then the product ordinal, amount and unit price of each
+	 * item.
+	 * 
+	 * @param output where the transaction is written
+	 * @throws IOException if the transaction cannot be written
+	 */
+	void write(DataOutput output) throws IOException {
+		output.writeLong(date);
+		output.writeInt(items);
+		for (int index = 0; index < items; index++) {
+			output.writeInt(productOrdinals[index]);
+			output.writeInt(purchaseAmounts[index]);
+			output.writeLong(purchasePrices[index]);
+		}
+	}
+
+	/**
+	 * Reads back a transaction written by write()
+	 * 
+	 * @param input        where the transaction is read from
+	 * @param productTable the table the product ordinals refer to
+	 * @return the transaction
+	 * @throws IOException if the transaction cannot be read
+	 */
+	static Transaction read(DataInput input, ProductTable productTable) throws IOException {
+		Transaction transaction = new Transaction();
+		transaction.date = input.readLong();
+		int items = input.readInt();
+		transaction.productTable = productTable;
+		transaction.items = items;
+		transaction.productOrdinals = new int[items];
+		transaction.purchaseAmounts = new int[items];
+		transaction.purchasePrices = new long[items];
+		for (int index = 0; index < items; index++) {
+			transaction.productOrdinals[index] = input.readInt();
+			transaction.purchaseAmounts[index] = input.readInt();
+			transaction.purchasePrices[index] = input.readLong();
+			transaction.purchaseTotal += transaction.purchaseAmounts[index] * transaction.purchasePrices[index];
+		}
+		return transaction;
+	}
+
+	/**
+	 * @return the table the product ordinals of this transaction refer to, or
+	 *         null if no item was added
+	 */
+	ProductTable getProductTable() {
+		return productTable;
+	}
+
 	/**
 	 * Adds a grocery item to the transaction.
 	 * 
@@ -59,19 +126,43 @@ public class Transaction implements Serializable {
 	 * @return String which displays sale information for line item
 	 */
 	public String addItem(Product itemForPurchase, int purchaseAmount) {
-		LineItem lineItem = new LineItem(itemForPurchase, purchaseAmount);
-		groceryItems.add(lineItem);
+		if (items == productOrdinals.length) {
+			int capacity = Math.max(4, items * 2);
+			productOrdinals = Arrays.copyOf(productOrdinals, capacity);
+			purchaseAmounts = Arrays.copyOf(purchaseAmounts, capacity);
+			purchasePrices = Arrays.copyOf(purchasePrices, capacity);
+		}
+		productTable = itemForPurchase.getTable();
+		productTable.putProduct(itemForPurchase.getOrdinal(), itemForPurchase);
+		productOrdinals[items] = itemForPurchase.getOrdinal();
+		purchaseAmounts[items] = purchaseAmount;
+		purchasePrices[items] = itemForPurchase.getPrice();
+		LineItem lineItem = new LineItem(itemForPurchase, purchaseAmount, purchasePrices[items]);
+		items++;
 		purchaseTotal += lineItem.getPurchasePrice();
 		return lineItem.toString();
 	}
 
+	/**
+	 * Shrinks the arrays to the items added. Called when the transaction is
+	 * finalized, as no item is added after that; until then the arrays keep
+	 * the room left by doubling.
+	 */
+	public void trimToSize() {
+		if (items < productOrdinals.length) {
+			productOrdinals = Arrays.copyOf(productOrdinals, items);
+			purchaseAmounts = Arrays.copyOf(purchaseAmounts, items);
+			purchasePrices = Arrays.copyOf(purchasePrices, items);
+		}
+	}
+
 	/**
 	 * Returns the transaction purchase total as a String
 	 * 
 	 * @return purchaseTotal in proper dollar format
 	 */
 	public String getPurchaseTotal() {
-		return String.format("$%.2f", purchaseTotal);
+		return "$" + Money.format(purchaseTotal);
 	}
 
 	/**
@@ -82,7 +173,55 @@ public class Transaction implements Serializable {
 	 * @return true iff date is within range
 	 */
 	public boolean betweenDates(Calendar beginDate, Calendar endDate) {
-		return this.date.after(beginDate) && this.date.before(endDate);
+		return after(beginDate) && before(endDate);
+	}
+
+	/**
+	 * Checks whether this transaction took place after the given date
+	 * 
+	 * @param date the date to compare with
+	 * @return true iff the transaction is later than date
+	 */
+	public boolean after(Calendar date) {
+		return this.date > date.getTimeInMillis();
+	}
+
+	/**
+	 * Checks whether this transaction took place before the given date
+	 * 
+	 * @param date the date to compare with
+	 * @return true iff the transaction is earlier than date
+	 */
+	public boolean before(Calendar date) {
+		return this.date < date.getTimeInMillis();
+	}
+
+	/**
+	 * Returns the time of the transaction
+	 * 
+	 * @return milliseconds since the epoch
+	 */
+	public long getTimeInMillis() {
+		return date;
+	}
+
+	/**
+	 * Returns the time of the transaction
+	 * 
+	 * @return the instant the transaction was started
+	 */
+	public Instant getTime() {
+		return Instant.ofEpochMilli(date);
+	}
+
+	/**
+	 * Checks whether this transaction took place after another one
+	 * 
+	 * @param transaction the transaction to compare with
+	 * @return true iff this transaction is later than the other one
+	 */
+	public boolean after(Transaction transaction) {
+		return date > transaction.date;
 	}
 
 	/**
@@ -91,16 +230,42 @@ public class Transaction implements Serializable {
 	 * @return date with month, date, and year
 	 */
 	public String getDate() {
-		return date.get(Calendar.MONTH) + "/" + date.get(Calendar.DATE) + "/" + date.get(Calendar.YEAR);
+		LocalDate localDate = getTime().atZone(ZoneId.systemDefault()).toLocalDate();
+		return localDate.getMonthValue() + "/" + localDate.getDayOfMonth() + "/" + localDate.getYear();
 	}
 
 	/**
-	 * get LineItems
+	 * get LineItems. Each LineItem is built from the packed arrays when the
+	 * iterator reaches it.
 	 * 
 	 * @return groceryItems - Iterator
 	 */
 	public Iterator<LineItem> getLineItems() {
-		return groceryItems.iterator();
+		return new Iterator<LineItem>() {
+			private int index;
+
+			@Override
+			public boolean hasNext() {
+				return index < items;
+			}
+
+			@Override
+			public LineItem next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException("No such element");
+				}
+				return getLineItem(index++);
+			}
+		};
+	}
+
+	/*
+	 * Decodes the line item at the given index, with the product shared by its
+	 * row of the product table.
+	 */
+	private LineItem getLineItem(int index) {
+		return new LineItem(productTable.getProduct(productOrdinals[index]), purchaseAmounts[index],
+				purchasePrices[index]);
 	}
 
 	/**
@@ -0,0 +1,188 @@
+package business.entities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import business.entities.helpers.ProductTable;
+
+/**
+ * The archived part of a member's transaction history. Archived transactions
+ * are appended to a segment file on disk and only their count and time span
+ * stay in memory. The archive remembers where its own transactions start so
+ * that it ignores anything written before it.
+ * 
+ * The transactions in the segment are in time order. Every INDEX_INTERVAL-th
+ * transaction has its time and file position kept in a sparse index, so a
+ * query for a date range seeks close to the start of the range and reads only
+ * up to its end. Transactions that arrive later than newer ones already
+ * archived are merged in by writing the whole history to a temporary file,
+ * which then replaces the segment in one atomic move.
+ */
+class TransactionArchive implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private static final int INDEX_INTERVAL = 64;
+	private String fileName;
+	private ProductTable productTable;
+	private long start;
+	private int count;
+	private long newestTime = Long.MIN_VALUE;
+	private long[] indexTimes = new long[0];
+	private long[] indexPositions = new long[0];
+
+	/**
+	 * Creates an empty archive kept in the given file
+	 * 
+	 * @param fileName the segment file
+	 */
+	TransactionArchive(String fileName) {
+		this.fileName = fileName;
+		this.start = -1;
+	}
+
+	/**
+	 * Appends transactions to the archive. They must be in time order. If they
+	 * start before the latest transaction already archived, the segment is
+	 * written again with all transactions in time order.
+	 * 
+	 * @param transactions the transactions to be archived
+	 * @throws IOException if the segment file cannot be read or written
+	 */
+	void append(List<Transaction> transactions) throws IOException {
+		if (transactions.isEmpty()) {
+			return;
+		}
+		if (transactions.get(0).getTimeInMillis() < newestTime) {
+			rewrite(transactions);
+			return;
+		}
+		try (FileOutputStream file = new FileOutputStream(fileName, true)) {
+			long position = file.getChannel().position();
+			if (start < 0) {
+				start = position;
+			}
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file));
+			for (Transaction transaction : transactions) {
+				if (productTable == null) {
+					productTable = transaction.getProductTable();
+				}
+				if (count % INDEX_INTERVAL == 0) {
+					int entry = count / INDEX_INTERVAL;
+					if (entry == indexTimes.length) {
+						indexTimes = Arrays.copyOf(indexTimes, Math.max(4, entry * 2));
+						indexPositions = Arrays.copyOf(indexPositions, Math.max(4, entry * 2));
+					}
+					indexTimes[entry] = transaction.getTimeInMillis();
+					indexPositions[entry] = position + output.size();
+				}
+				transaction.write(output);
+				count++;
+				newestTime = transaction.getTimeInMillis();
+			}
+			output.flush();
+		}
+	}
+
+	/*
+	 * Archives the merged history in a temporary file and moves it over the
+	 * segment. The archive only takes over the new segment once the move has
+	 * succeeded, so a failure leaves the old one in use.
+	 */
+	private void rewrite(List<Transaction> transactions) throws IOException {
+		List<Transaction> merged = load();
+		merged.addAll(transactions);
+		merged.sort(Comparator.comparingLong(Transaction::getTimeInMillis));
+		TransactionArchive rewritten = new TransactionArchive(fileName + ".tmp");
+		rewritten.productTable = productTable;
+		Files.deleteIfExists(Paths.get(rewritten.fileName));
+		rewritten.append(merged);
+		Files.move(Paths.get(rewritten.fileName), Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		start = rewritten.start;
+		count = rewritten.count;
+		newestTime = rewritten.newestTime;
+		indexTimes = rewritten.indexTimes;
+		indexPositions = rewritten.indexPositions;
+		productTable = rewritten.productTable;
+	}
+
+	/**
+	 * Reads all archived transactions back from the segment file
+	 * 
+	 * @return the transactions in time order
+	 * @throws IOException if the segment file cannot be read
+	 */
+	List<Transaction> load() throws IOException {
+		return load(Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Reads back the archived transactions made after one time and before
+	 * another. Reading starts at the last indexed transaction that is not after
+	 * the first time and stops at the first transaction that is not before the
+	 * second.
+	 * 
+	 * @param after  transactions must be later than this time
+	 * @param before transactions must be earlier than this time
+	 * @return the transactions in time order
+	 * @throws IOException if the segment file cannot be read
+	 */
+	List<Transaction> load(long after, long before) throws IOException {
+		List<Transaction> transactions = new ArrayList<Transaction>();
+		if (count == 0 || newestTime <= after) {
+			return transactions;
+		}
+		int entry = Math.max(0, lastIndexEntryNotAfter(after));
+		try (FileInputStream file = new FileInputStream(fileName)) {
+			file.getChannel().position(indexPositions[entry]);
+			DataInputStream input = new DataInputStream(new BufferedInputStream(file));
+			for (int index = entry * INDEX_INTERVAL; index < count; index++) {
+				Transaction transaction = Transaction.read(input, productTable);
+				if (transaction.getTimeInMillis() >= before) {
+					break;
+				}
+				if (transaction.getTimeInMillis() > after) {
+					transactions.add(transaction);
+				}
+			}
+		}
+		return transactions;
+	}
+
+	/*
+	 * Returns the last index entry whose time is not after the given time, or -1
+	 * if there is none.
+	 */
+	private int lastIndexEntryNotAfter(long time) {
+		int low = 0;
+		int high = (count + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (indexTimes[middle] <= time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low - 1;
+	}
+
+	/**
+	 * @return the time of the latest archived transaction
+	 */
+	long getNewestTime() {
+		return newestTime;
+	}
+}
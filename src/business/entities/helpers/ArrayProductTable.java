@@ -0,0 +1,129 @@
+package business.entities.helpers;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A ProductTable kept on the heap. The numeric columns are arrays of primitive
+ * values; the id and name columns refer to the strings held by the products.
+ * 
+ * The columns are split into pages of fixed size. Adding a product never moves
+ * the rows already stored; only the small arrays of pages are copied when a new
+ * page is needed.
+ * 
+ * The stock on hand column is read and written through a VarHandle, so a sale
+ * or a shipment changes it with a single atomic add.
+ */
+public class ArrayProductTable extends ProductTable {
+	private static final long serialVersionUID = 1L;
+	private static final int PAGE_BITS = 10;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	private static final VarHandle STOCK = MethodHandles.arrayElementVarHandle(int[].class);
+	private String[][] id = new String[0][];
+	private String[][] name = new String[0][];
+	private int[][] stockOnHand = new int[0][];
+	private int[][] reorderLevel = new int[0][];
+	private long[][] price = new long[0][];
+	private int size;
+
+	@Override
+	public int add(String id, String name, int stockOnHand, int reorderLevel, long price) {
+		int ordinal = size;
+		if ((ordinal & PAGE_MASK) == 0) {
+			addPage();
+		}
+		size++;
+		this.id[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK] = id;
+		this.name[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK] = name;
+		setStockOnHand(ordinal, stockOnHand);
+		setReorderLevel(ordinal, reorderLevel);
+		setPrice(ordinal, price);
+		return ordinal;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String getId(int ordinal) {
+		return id[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK];
+	}
+
+	@Override
+	public String getName(int ordinal) {
+		return name[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK];
+	}
+
+	@Override
+	public int getStockOnHand(int ordinal) {
+		return (int) STOCK.getVolatile(stockOnHand[ordinal >>> PAGE_BITS], ordinal & PAGE_MASK);
+	}
+
+	@Override
+	public void setStockOnHand(int ordinal, int value) {
+		STOCK.setVolatile(stockOnHand[ordinal >>> PAGE_BITS], ordinal & PAGE_MASK, value);
+	}
+
+	@Override
+	public int addStockOnHand(int ordinal, int delta) {
+		return (int) STOCK.getAndAdd(stockOnHand[ordinal >>> PAGE_BITS], ordinal & PAGE_MASK, delta) + delta;
+	}
+
+	@Override
+	public int getReorderLevel(int ordinal) {
+		return reorderLevel[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK];
+	}
+
+	@Override
+	public void setReorderLevel(int ordinal, int value) {
+		reorderLevel[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK] = value;
+	}
+
+	@Override
+	public long getPrice(int ordinal) {
+		return price[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK];
+	}
+
+	@Override
+	public void setPrice(int ordinal, long value) {
+		price[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK] = value;
+	}
+
+	/**
+	 * Computes the value of the stock on hand of all products, one page at a
+	 * time
+	 * 
+	 * @return the sum of stock on hand times price, in cents
+	 */
+	@Override
+	public long totalValue() {
+		long total = 0;
+		for (int page = 0; page < stockOnHand.length; page++) {
+			int[] stockPage = stockOnHand[page];
+			long[] pricePage = price[page];
+			int rows = Math.min(PAGE_SIZE, size - (page << PAGE_BITS));
+			for (int row = 0; row < rows; row++) {
+				total += stockPage[row] * pricePage[row];
+			}
+		}
+		return total;
+	}
+
+	private void addPage() {
+		int pages = stockOnHand.length;
+		id = Arrays.copyOf(id, pages + 1);
+		name = Arrays.copyOf(name, pages + 1);
+		stockOnHand = Arrays.copyOf(stockOnHand, pages + 1);
+		reorderLevel = Arrays.copyOf(reorderLevel, pages + 1);
+		price = Arrays.copyOf(price, pages + 1);
+		id[pages] = new String[PAGE_SIZE];
+		name[pages] = new String[PAGE_SIZE];
+		stockOnHand[pages] = new int[PAGE_SIZE];
+		reorderLevel[pages] = new int[PAGE_SIZE];
+		price[pages] = new long[PAGE_SIZE];
+	}
+}
@@ -0,0 +1,142 @@
+package business.entities.helpers;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Helper class handing out unique numeric ids. Ids are reserved from a shared
+ * high-water mark in blocks. The blocks in use are kept in a small fixed set of
+ * stripes, about one per processor, and a thread numbers from the block of the
+ * stripe it hashes to with one atomic increment, so id generation is not a
+ * point of contention. A block is reserved by a compare-and-set on the
+ * high-water mark.
+ * 
+ * Blocks belong to stripes rather than to threads, so short-lived threads, such
+ * as one virtual thread per connection, do not each leave a partly used block
+ * behind. Only the high-water mark needs to be saved, so each save and restore
+ * skips the ids left unused in the current blocks: up to stripes times the
+ * block size, which is 32 ids per stripe for members and orders. Skipped ids
+ * are never handed out twice.
+ */
+public class IdAllocator {
+	private AtomicLong highWater = new AtomicLong();
+	private int blockSize;
+	private AtomicReferenceArray<Block> blocks;
+	private Object[] refills;
+
+	private static class Block {
+		private final AtomicLong last;
+		private final long limit;
+
+		private Block(long start, long limit) {
+			this.last = new AtomicLong(start);
+			this.limit = limit;
+		}
+	}
+
+	/**
+	 * Creates an allocator starting at id 1, with one stripe per processor
+	 * 
+	 * @param blockSize the number of ids reserved by a stripe at a time
+	 */
+	public IdAllocator(int blockSize) {
+		this(blockSize, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates an allocator starting at id 1
+	 * 
+	 * @param blockSize the number of ids reserved by a stripe at a time
+	 * @param stripes   the number of blocks in use at once, rounded up to a
+	 *                  power of two
+	 */
+	public IdAllocator(int blockSize, int stripes) {
+		this.blockSize = blockSize;
+		int count = 1;
+		while (count < stripes) {
+			count <<= 1;
+		}
+		blocks = new AtomicReferenceArray<Block>(count);
+		refills = new Object[count];
+		for (int stripe = 0; stripe < count; stripe++) {
+			refills[stripe] = new Object();
+		}
+	}
+
+	/**
+	 * Returns the next id of the calling thread's stripe, reserving a new block
+	 * when the current one is used up
+	 * 
+	 * @return a unique id
+	 */
+	public long next() {
+		int stripe = stripe();
+		while (true) {
+			Block block = blocks.get(stripe);
+			if (block != null) {
+				long id = block.last.incrementAndGet();
+				if (id <= block.limit) {
+					return id;
+				}
+			}
+			refill(stripe, block);
+		}
+	}
+
+	/*
+	 * Spreads the thread ids over the stripes.
+	 */
+	private int stripe() {
+		long id = Thread.currentThread().threadId();
+		return (int) ((id ^ (id >>> 16)) * 0x9E3779B9L >>> 16) & (blocks.length() - 1);
+	}
+
+	/*
+	 * Gives the stripe a new block, unless another thread already replaced the
+	 * used up one.
+	 */
+	private void refill(int stripe, Block used) {
+		synchronized (refills[stripe]) {
+			if (blocks.get(stripe) == used) {
+				long start = reserve();
+				blocks.set(stripe, new Block(start, start + blockSize));
+			}
+		}
+	}
+
+	/*
+	 * Moves the high-water mark up by one block and returns where the block
+	 * starts.
+	 */
+	private long reserve() {
+		while (true) {
+			long start = highWater.get();
+			if (highWater.compareAndSet(start, start + blockSize)) {
+				return start;
+			}
+		}
+	}
+
+	/**
+	 * @return the highest id that may have been handed out
+	 */
+	public long getHighWater() {
+		return highWater.get();
+	}
+
+	/**
+	 * Continues the sequence after a saved high-water mark. The blocks in use
+	 * are dropped. Meant to be called before ids are handed out, when a store
+	 * is read back.
+	 * 
+	 * @param mark the high-water mark that was saved
+	 */
+	public void restore(long mark) {
+		highWater.accumulateAndGet(mark, Math::max);
+		for (int stripe = 0; stripe < blocks.length(); stripe++) {
+			synchronized (refills[stripe]) {
+				blocks.set(stripe, null);
+			}
+		}
+	}
+}
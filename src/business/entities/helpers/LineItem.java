@@ -6,7 +6,7 @@ import business.entities.Product;
 
 /**
  * Helper class for Transaction. Stores relevant information for each product
- * purchased.
+ * purchased, including its price at the time of sale.
  * 
  * @author G.D.Ponsness and Nalongsone Danddank
  */
@@ -15,12 +15,21 @@ public class LineItem implements Serializable {
 	private static final long serialVersionUID = 1L;
 	private Product product;
 	private int purchaseAmount;
-	private double purchasePrice;
+	private long unitPrice;
+	private long purchasePrice;
 
-	public LineItem(Product product, int purchaseAmount) {
+	/**
+	 * Creates a line item for an amount of a product sold at a unit price
+	 * 
+	 * @param product        the product purchased
+	 * @param purchaseAmount the number of items purchased
+	 * @param unitPrice      the price of one item in cents
+	 */
+	public LineItem(Product product, int purchaseAmount, long unitPrice) {
 		this.product = product;
 		this.purchaseAmount = purchaseAmount;
-		purchasePrice = Double.parseDouble(product.getPrice()) * purchaseAmount;
+		this.unitPrice = unitPrice;
+		purchasePrice = unitPrice * purchaseAmount;
 	}
 
 	public Product getProduct() {
@@ -31,17 +40,29 @@ public class LineItem implements Serializable {
 		return purchaseAmount;
 	}
 
-	public double getPurchasePrice() {
+	/**
+	 * @return the price of one item at the time of sale, in cents
+	 */
+	public long getUnitPrice() {
+		return unitPrice;
+	}
+
+	/**
+	 * @return the price of all items in cents
+	 */
+	public long getPurchasePrice() {
 		return purchasePrice;
 	}
 
 	/**
+	 * Only prices recorded at the time of sale are shown, so the line does not
+	 * change when the product's price does.
+	 * 
 	 * @return String with sale information in proper dollar format
 	 */
 	@Override
 	public String toString() {
-		String formatPurchasePrice = String.format("$%.2f", purchasePrice);
-		return product.getName() + "\t\t$" + product.getPrice() + "    " + purchaseAmount + "    "
-				+ formatPurchasePrice;
+		return product.getName() + "\t\t$" + Money.format(unitPrice) + "    " + purchaseAmount + "    $"
+				+ Money.format(purchasePrice);
 	}
 }
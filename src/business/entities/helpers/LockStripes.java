@@ -0,0 +1,60 @@
+package business.entities.helpers;
+
+import java.io.Serializable;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Helper class for locking by key. A fixed number of locks is shared among all
+ * keys; keys that hash to different stripes can be locked by different threads
+ * at the same time, while the same key always maps to the same lock.
+ */
+public class LockStripes implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private ReentrantLock[] locks;
+
+	/**
+	 * Creates the stripes
+	 * 
+	 * @param stripes the number of locks, rounded up to a power of two
+	 */
+	public LockStripes(int stripes) {
+		int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+		locks = new ReentrantLock[size];
+		for (int index = 0; index < size; index++) {
+			locks[index] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Returns the lock guarding a key
+	 * 
+	 * @param key the key to be locked
+	 * @return the lock of the stripe the key belongs to
+	 */
+	public Lock lockFor(String key) {
+		int hash = key.hashCode();
+		hash ^= hash >>> 16;
+		return locks[hash & (locks.length - 1)];
+	}
+
+	/**
+	 * Takes all the locks, always in the same order, so that no key changes
+	 * until unlockAll() is called. Callers of lockFor() must not wait for a
+	 * second stripe while holding one.
+	 */
+	public void lockAll() {
+		for (ReentrantLock lock : locks) {
+			lock.lock();
+		}
+	}
+
+	/**
+	 * Releases the locks taken by lockAll()
+	 */
+	public void unlockAll() {
+		for (int index = locks.length - 1; index >= 0; index--) {
+			locks[index].unlock();
+		}
+	}
+}
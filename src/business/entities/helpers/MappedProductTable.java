@@ -0,0 +1,428 @@
+package business.entities.helpers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A ProductTable kept outside the Java heap in a memory-mapped file. Every
+ * product is a fixed-width record holding its stock on hand, reorder level,
+ * price in cents and the position of its id and name in a side dictionary
+ * file. The id and name are stored there as length-prefixed UTF-8 strings.
+ *
+ * The records are mapped in pages, so the file can grow without remapping the
+ * rows already stored. Since the data lives in the file, serializing the table
+ * only writes the file name, and reading it back maps the file again without
+ * deserializing any rows.
+ *
+ * The stock on hand is read and written through a VarHandle viewing the mapped
+ * page as ints, so a sale or a shipment changes it with a single atomic add.
+ * Records are 4-byte aligned, which atomic access to the mapping requires.
+ *
+ * Rows are found by id through an open-addressing hash index kept in a third
+ * mapped file, with the extra extension .ids. A slot holds the hash of an id
+ * and its row, so a lookup reads the dictionary only to confirm a hash match.
+ * The catalog can therefore be used as soon as the files are mapped. When the
+ * index fills up, a larger copy is written to a temporary file and moved over
+ * it; lookups still running keep the mapping they started with. A missing or
+ * stale index is rebuilt from the rows when the table is opened.
+ *
+ * The record file is only open while pages are mapped; a mapping stays valid
+ * after its channel is closed. The dictionary stays open for appends and reads
+ * until the table is closed.
+ */
+public class MappedProductTable extends ProductTable implements Closeable {
+	private static final long serialVersionUID = 1L;
+	private static final int MAGIC = 0x50524F44;
+	private static final int HEADER_SIZE = 8;
+	private static final int RECORD_SIZE = 24;
+	private static final int STOCK_ON_HAND = 0;
+	private static final int REORDER_LEVEL = 4;
+	private static final int PRICE = 8;
+	private static final int DICTIONARY = 16;
+	private static final int PAGE_BITS = 16;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	private static final int ENTRY_READ = 128;
+	private static final int IDS_MAGIC = 0x50494458;
+	private static final int IDS_HEADER_SIZE = 8;
+	private static final int SLOT_SIZE = 8;
+	private static final int MIN_SLOTS = 1024;
+	private static final VarHandle STOCK = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+	private static final VarHandle SLOT = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+	private String fileName;
+	private transient FileChannel dictionary;
+	private transient MappedByteBuffer header;
+	private transient List<MappedByteBuffer> pages;
+	private transient volatile MappedByteBuffer ids;
+	private transient int size;
+
+	/**
+	 * Maps the table kept in the given file, creating the file if needed. The
+	 * dictionary is kept next to it, in a file with the extra extension .dict
+	 *
+	 * @param fileName the name of the file holding the records
+	 * @throws IOException if the file cannot be mapped or is not a product table
+	 */
+	public MappedProductTable(String fileName) throws IOException {
+		this.fileName = fileName;
+		open();
+	}
+
+	@Override
+	public int add(String id, String name, int stockOnHand, int reorderLevel, long price) {
+		int ordinal = size;
+		if ((ordinal & PAGE_MASK) == 0) {
+			try (FileChannel records = openRecords()) {
+				mapPage(records, ordinal >>> PAGE_BITS);
+			} catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
+		}
+		ByteBuffer page = pages.get(ordinal >>> PAGE_BITS);
+		int offset = (ordinal & PAGE_MASK) * RECORD_SIZE;
+		page.putInt(offset + STOCK_ON_HAND, stockOnHand);
+		page.putInt(offset + REORDER_LEVEL, reorderLevel);
+		page.putLong(offset + PRICE, price);
+		page.putLong(offset + DICTIONARY, addStrings(id, name));
+		size++;
+		header.putInt(4, size);
+		index(id, ordinal);
+		return ordinal;
+	}
+
+	@Override
+	public boolean indexesIds() {
+		return true;
+	}
+
+	@Override
+	public int ordinalOf(String id) {
+		MappedByteBuffer index = ids;
+		int hash = hash(id);
+		int mask = slots(index) - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			long entry = (long) SLOT.getVolatile(index, IDS_HEADER_SIZE + slot * SLOT_SIZE);
+			if (entry == 0) {
+				return -1;
+			}
+			int ordinal = (int) entry - 1;
+			if ((int) (entry >>> 32) == hash && getId(ordinal).equals(id)) {
+				return ordinal;
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String getId(int ordinal) {
+		return readEntry(dictionaryPosition(ordinal))[0];
+	}
+
+	@Override
+	public String getName(int ordinal) {
+		return readEntry(dictionaryPosition(ordinal))[1];
+	}
+
+	@Override
+	public int getStockOnHand(int ordinal) {
+		return (int) STOCK.getVolatile(page(ordinal), offset(ordinal) + STOCK_ON_HAND);
+	}
+
+	@Override
+	public void setStockOnHand(int ordinal, int value) {
+		STOCK.setVolatile(page(ordinal), offset(ordinal) + STOCK_ON_HAND, value);
+	}
+
+	@Override
+	public int addStockOnHand(int ordinal, int delta) {
+		return (int) STOCK.getAndAdd(page(ordinal), offset(ordinal) + STOCK_ON_HAND, delta) + delta;
+	}
+
+	@Override
+	public int getReorderLevel(int ordinal) {
+		return page(ordinal).getInt(offset(ordinal) + REORDER_LEVEL);
+	}
+
+	@Override
+	public void setReorderLevel(int ordinal, int value) {
+		page(ordinal).putInt(offset(ordinal) + REORDER_LEVEL, value);
+	}
+
+	@Override
+	public long getPrice(int ordinal) {
+		return page(ordinal).getLong(offset(ordinal) + PRICE);
+	}
+
+	@Override
+	public void setPrice(int ordinal, long value) {
+		page(ordinal).putLong(offset(ordinal) + PRICE, value);
+	}
+
+	/**
+	 * Writes all changes made to the mapped pages out to the file
+	 */
+	public void force() {
+		header.force();
+		for (MappedByteBuffer page : pages) {
+			page.force();
+		}
+		ids.force();
+	}
+
+	/**
+	 * Writes out all changes and closes the dictionary. The table cannot be used
+	 * afterwards.
+	 *
+	 * @throws IOException if the dictionary cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		force();
+		dictionary.close();
+	}
+
+	private ByteBuffer page(int ordinal) {
+		return pages.get(ordinal >>> PAGE_BITS);
+	}
+
+	private static int offset(int ordinal) {
+		return (ordinal & PAGE_MASK) * RECORD_SIZE;
+	}
+
+	private long dictionaryPosition(int ordinal) {
+		return page(ordinal).getLong(offset(ordinal) + DICTIONARY);
+	}
+
+	/*
+	 * Checks the header and maps the pages that hold records, then opens the
+	 * dictionary.
+	 */
+	private void open() throws IOException {
+		try (FileChannel records = openRecords()) {
+			boolean created = records.size() == 0;
+			header = records.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+			if (created) {
+				header.putInt(0, MAGIC);
+				header.putInt(4, 0);
+			} else if (header.getInt(0) != MAGIC) {
+				throw new IOException(fileName + " is not a product table");
+			}
+			size = header.getInt(4);
+			pages = new CopyOnWriteArrayList<MappedByteBuffer>();
+			for (int page = 0; page << PAGE_BITS < size; page++) {
+				mapPage(records, page);
+			}
+		}
+		dictionary = FileChannel.open(Paths.get(fileName + ".dict"), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		ids = openIds();
+	}
+
+	/*
+	 * Maps the id index if it covers all rows, and builds it from the rows
+	 * otherwise.
+	 */
+	private MappedByteBuffer openIds() throws IOException {
+		Path path = Paths.get(fileName + ".ids");
+		if (Files.exists(path)) {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				if (channel.size() > IDS_HEADER_SIZE) {
+					MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+					if (index.getInt(0) == IDS_MAGIC && index.getInt(4) == size) {
+						return index;
+					}
+				}
+			}
+		}
+		int slots = MIN_SLOTS;
+		while (slots < 2L * size) {
+			slots <<= 1;
+		}
+		MappedByteBuffer index = createIds(slots);
+		for (int ordinal = 0; ordinal < size; ordinal++) {
+			insert(index, hash(readEntry(dictionaryPosition(ordinal))[0]), ordinal);
+		}
+		return publishIds(index);
+	}
+
+	/*
+	 * Adds a new row to the id index, first moving the index to a file twice
+	 * the size once it is half full.
+	 */
+	private void index(String id, int ordinal) {
+		MappedByteBuffer index = ids;
+		try {
+			if (2L * size > slots(index)) {
+				MappedByteBuffer larger = createIds(2 * slots(index));
+				for (int slot = 0; slot < slots(index); slot++) {
+					long entry = (long) SLOT.getVolatile(index, IDS_HEADER_SIZE + slot * SLOT_SIZE);
+					if (entry != 0) {
+						insert(larger, (int) (entry >>> 32), (int) entry - 1);
+					}
+				}
+				larger.putInt(4, size - 1);
+				index = publishIds(larger);
+			}
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		insert(index, hash(id), ordinal);
+		index.putInt(4, size);
+	}
+
+	/*
+	 * Maps an empty index with the given number of slots in a temporary file.
+	 */
+	private MappedByteBuffer createIds(int slots) throws IOException {
+		Path path = Paths.get(fileName + ".ids.tmp");
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					IDS_HEADER_SIZE + (long) slots * SLOT_SIZE);
+			index.putInt(0, IDS_MAGIC);
+			index.putInt(4, size);
+			return index;
+		}
+	}
+
+	/*
+	 * Writes out a filled index, moves its file over the current index and
+	 * makes it the one used for lookups.
+	 */
+	private MappedByteBuffer publishIds(MappedByteBuffer index) throws IOException {
+		index.force();
+		Files.move(Paths.get(fileName + ".ids.tmp"), Paths.get(fileName + ".ids"),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		ids = index;
+		return index;
+	}
+
+	private static void insert(MappedByteBuffer index, int hash, int ordinal) {
+		int mask = slots(index) - 1;
+		int slot = hash & mask;
+		while ((long) SLOT.getVolatile(index, IDS_HEADER_SIZE + slot * SLOT_SIZE) != 0) {
+			slot = (slot + 1) & mask;
+		}
+		SLOT.setVolatile(index, IDS_HEADER_SIZE + slot * SLOT_SIZE,
+				(long) hash << 32 | (ordinal + 1) & 0xFFFFFFFFL);
+	}
+
+	private static int slots(MappedByteBuffer index) {
+		return (index.capacity() - IDS_HEADER_SIZE) / SLOT_SIZE;
+	}
+
+	private static int hash(String id) {
+		int hash = id.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	private FileChannel openRecords() throws IOException {
+		return FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+	}
+
+	private void mapPage(FileChannel records, int page) throws IOException {
+		long position = HEADER_SIZE + (long) page * PAGE_SIZE * RECORD_SIZE;
+		pages.add(records.map(FileChannel.MapMode.READ_WRITE, position, (long) PAGE_SIZE * RECORD_SIZE));
+	}
+
+	/*
+	 * Appends the id and the name to the dictionary and returns where they start.
+	 */
+	private long addStrings(String id, String name) {
+		byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES + idBytes.length + nameBytes.length);
+		buffer.putInt(idBytes.length).put(idBytes).putInt(nameBytes.length).put(nameBytes).flip();
+		try {
+			long position = dictionary.size();
+			while (buffer.hasRemaining()) {
+				dictionary.write(buffer, position + buffer.position());
+			}
+			return position;
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/*
+	 * Reads the id and the name stored at the given position. Most entries are
+	 * short enough to be read in one go.
+	 */
+	private String[] readEntry(long position) {
+		ByteBuffer buffer = read(position, ENTRY_READ, false);
+		if (buffer.limit() < Integer.BYTES) {
+			buffer = read(position, Integer.BYTES, true);
+		}
+		int idLength = buffer.getInt(0);
+		int nameStart = Integer.BYTES + idLength;
+		if (buffer.limit() < nameStart + Integer.BYTES) {
+			buffer = read(position, nameStart + Integer.BYTES, true);
+		}
+		int nameLength = buffer.getInt(nameStart);
+		int entryLength = nameStart + Integer.BYTES + nameLength;
+		if (buffer.limit() < entryLength) {
+			buffer = read(position, entryLength, true);
+		}
+		byte[] bytes = buffer.array();
+		return new String[] { new String(bytes, Integer.BYTES, idLength, StandardCharsets.UTF_8),
+				new String(bytes, nameStart + Integer.BYTES, nameLength, StandardCharsets.UTF_8) };
+	}
+
+	/*
+	 * Reads up to length bytes. Unless all of them are required, fewer are
+	 * returned at the end of the dictionary.
+	 */
+	private ByteBuffer read(long position, int length, boolean required) {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		try {
+			while (buffer.hasRemaining()) {
+				if (dictionary.read(buffer, position + buffer.position()) < 0) {
+					if (!required) {
+						break;
+					}
+					throw new IOException("Dictionary of " + fileName + " is truncated");
+				}
+			}
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private void writeObject(ObjectOutputStream output) throws IOException {
+		force();
+		output.defaultWriteObject();
+	}
+
+	private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+		input.defaultReadObject();
+		if (fileName == null) {
+			throw new InvalidObjectException("No file name");
+		}
+		open();
+	}
+}
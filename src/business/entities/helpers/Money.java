@@ -0,0 +1,45 @@
+package business.entities.helpers;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Helper class for amounts of money. Amounts are held as a whole number of
+ * cents in a long, so that totals are exact and need no floating point. The
+ * text form, such as "4.50", is only used at the user interface.
+ */
+public final class Money {
+
+	private Money() {
+	}
+
+	/**
+	 * Converts an amount such as "4.50", ".35" or "299" to cents. Fractions of
+	 * a cent are rounded half up.
+	 * 
+	 * @param amount the amount in dollars
+	 * @return the amount in cents
+	 * @throws NumberFormatException if the amount is not a decimal number or
+	 *                               does not fit in a long
+	 */
+	public static long parse(String amount) {
+		try {
+			return new BigDecimal(amount.trim()).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+		} catch (ArithmeticException ae) {
+			throw new NumberFormatException("Amount out of range: " + amount);
+		}
+	}
+
+	/**
+	 * Converts an amount in cents to dollars with two decimals, such as "4.50"
+	 * 
+	 * @param cents the amount in cents
+	 * @return the amount in dollars
+	 */
+	public static String format(long cents) {
+		String sign = cents < 0 ? "-" : "";
+		long absolute = Math.abs(cents);
+		long remainder = absolute % 100;
+		return sign + absolute / 100 + (remainder < 10 ? ".0" : ".") + remainder;
+	}
+}
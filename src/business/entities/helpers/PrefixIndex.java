@@ -0,0 +1,60 @@
+package business.entities.helpers;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.TreeMap;
+
+/**
+ * Helper class for the Store collections. Keeps items sorted by their case
+ * folded name so that all items whose name starts with a given prefix can be
+ * found with a single range scan instead of a pass over the whole collection.
+ * Several items may share a name; they are told apart by their id.
+ * 
+ * @param <T> the type of the item indexed
+ */
+public class PrefixIndex<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private static final char SEPARATOR = '\0';
+	private TreeMap<String, T> items = new TreeMap<String, T>();
+
+	/**
+	 * Adds an item to the index
+	 * 
+	 * @param name the name the item is found by
+	 * @param id   the id of the item
+	 * @param item the item
+	 */
+	public void insert(String name, String id, T item) {
+		items.put(key(name, id), item);
+	}
+
+	/**
+	 * Removes an item from the index
+	 * 
+	 * @param name the name the item was inserted with
+	 * @param id   the id of the item
+	 */
+	public void remove(String name, String id) {
+		items.remove(key(name, id));
+	}
+
+	/**
+	 * Returns the items whose name starts with the prefix, ignoring case, in
+	 * alphabetical order of name.
+	 * 
+	 * @param prefix the start of the name
+	 * @return iterator to the matching items
+	 */
+	public Iterator<T> startingWith(String prefix) {
+		String from = prefix.toUpperCase();
+		return items.subMap(from, true, from + Character.MAX_VALUE, false).values().iterator();
+	}
+
+	/*
+	 * The key is the folded name followed by the id, so that equal names do not
+	 * overwrite each other and still sort together.
+	 */
+	private static String key(String name, String id) {
+		return name.toUpperCase() + SEPARATOR + id;
+	}
+}
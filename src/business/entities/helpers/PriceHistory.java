@@ -0,0 +1,53 @@
+package business.entities.helpers;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Helper class for ProductTable. Records the prices a product has had, each
+ * with the time it took effect, in time order. The price in effect at a given
+ * time is found by binary search.
+ */
+public class PriceHistory implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private long[] times = new long[2];
+	private long[] prices = new long[2];
+	private int size;
+
+	/**
+	 * Records a new price
+	 * 
+	 * @param time  when the price takes effect, in milliseconds since the epoch
+	 * @param price the price in cents
+	 */
+	public void add(long time, long price) {
+		if (size == times.length) {
+			times = Arrays.copyOf(times, size * 2);
+			prices = Arrays.copyOf(prices, size * 2);
+		}
+		times[size] = time;
+		prices[size] = price;
+		size++;
+	}
+
+	/**
+	 * Returns the price in effect at a given time. Times before the first
+	 * recorded price get the first price.
+	 * 
+	 * @param time milliseconds since the epoch
+	 * @return the price in cents
+	 */
+	public long priceAt(long time) {
+		int low = 1;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (times[middle] <= time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return prices[low - 1];
+	}
+}
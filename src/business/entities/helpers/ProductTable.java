@@ -0,0 +1,187 @@
+package business.entities.helpers;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import business.entities.Product;
+
+/**
+ * Helper class for Product. Holds the fields of every product in the inventory
+ * as columns indexed by a dense product ordinal. A Product is a view of one
+ * row. Whole-catalog scans run over the columns without touching the Product
+ * objects.
+ * 
+ * Rows are added while no other thread uses the table. Afterwards, threads may
+ * update different rows at the same time; the price histories are shared and
+ * guarded by the table itself. The stock on hand is an atomic counter that
+ * any number of threads may change at once without locking.
+ * 
+ * Each row has one shared Product, so line items decoded from a transaction
+ * reuse the product that was sold instead of reading the id and name again.
+ */
+public abstract class ProductTable implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private Map<Integer, PriceHistory> priceHistories = new HashMap<Integer, PriceHistory>();
+	private transient ConcurrentMap<Integer, Product> products = new ConcurrentHashMap<Integer, Product>();
+
+	/**
+	 * Adds a row for a new product
+	 * 
+	 * @param id           the id of the product
+	 * @param name         the name of the product
+	 * @param stockOnHand  the stock on hand of the product
+	 * @param reorderLevel the reorder level of the product
+	 * @param price        the price of the product in cents
+	 * @return the ordinal of the new row
+	 */
+	public abstract int add(String id, String name, int stockOnHand, int reorderLevel, long price);
+
+	/**
+	 * @return the number of rows
+	 */
+	public abstract int size();
+
+	/**
+	 * Returns the product of a row. A view of the row is created the first time
+	 * a row without a product is asked for.
+	 * 
+	 * @param ordinal the row of the product
+	 * @return the product
+	 */
+	public Product getProduct(int ordinal) {
+		Product product = products.get(ordinal);
+		if (product == null) {
+			Product view = new Product(this, ordinal);
+			product = products.putIfAbsent(ordinal, view);
+			if (product == null) {
+				product = view;
+			}
+		}
+		return product;
+	}
+
+	/**
+	 * Makes a product the one returned for its row, unless the row already has
+	 * one. A row that has one is only looked up.
+	 * 
+	 * @param ordinal the row of the product
+	 * @param product the product
+	 */
+	public void putProduct(int ordinal, Product product) {
+		if (!products.containsKey(ordinal)) {
+			products.putIfAbsent(ordinal, product);
+		}
+	}
+
+	/**
+	 * Tells whether the table finds rows by product id itself. The inventory
+	 * then keeps no id index of its own and the table holds the whole catalog.
+	 * 
+	 * @return true if ordinalOf() is supported
+	 */
+	public boolean indexesIds() {
+		return false;
+	}
+
+	/**
+	 * Finds the row of a product by its id. Only tables that index their ids
+	 * support the lookup; it may run while a row is being added.
+	 * 
+	 * @param id the id of the product
+	 * @return the row, or -1 if no product has the id
+	 */
+	public int ordinalOf(String id) {
+		throw new UnsupportedOperationException("Ids are not indexed by " + getClass().getSimpleName());
+	}
+
+	public abstract String getId(int ordinal);
+
+	public abstract String getName(int ordinal);
+
+	public abstract int getStockOnHand(int ordinal);
+
+	public abstract void setStockOnHand(int ordinal, int value);
+
+	/**
+	 * Adds to the stock on hand of a product as one atomic step
+	 * 
+	 * @param ordinal the row of the product
+	 * @param delta   the change in stock, negative for a sale
+	 * @return the stock on hand after the change
+	 */
+	public abstract int addStockOnHand(int ordinal, int delta);
+
+	public abstract int getReorderLevel(int ordinal);
+
+	public abstract void setReorderLevel(int ordinal, int value);
+
+	public abstract long getPrice(int ordinal);
+
+	public abstract void setPrice(int ordinal, long value);
+
+	/**
+	 * Changes the price of a product and records the change in its price
+	 * history. Only products whose price has changed have a history.
+	 * 
+	 * @param ordinal the row of the product
+	 * @param time    when the new price takes effect
+	 * @param price   the new price in cents
+	 */
+	public synchronized void changePrice(int ordinal, long time, long price) {
+		long oldPrice = getPrice(ordinal);
+		priceHistories.computeIfAbsent(ordinal, key -> {
+			PriceHistory history = new PriceHistory();
+			history.add(Long.MIN_VALUE, oldPrice);
+			return history;
+		}).add(time, price);
+		setPrice(ordinal, price);
+	}
+
+	/**
+	 * Returns the price of a product at a given time
+	 * 
+	 * @param ordinal the row of the product
+	 * @param time    milliseconds since the epoch
+	 * @return the price in cents
+	 */
+	public synchronized long getPriceAt(int ordinal, long time) {
+		PriceHistory history = priceHistories.get(ordinal);
+		return history == null ? getPrice(ordinal) : history.priceAt(time);
+	}
+
+	/**
+	 * Computes the value of the stock on hand of all products
+	 * 
+	 * @return the sum of stock on hand times price, in cents
+	 */
+	public long totalValue() {
+		long total = 0;
+		for (int ordinal = 0; ordinal < size(); ordinal++) {
+			total += getStockOnHand(ordinal) * getPrice(ordinal);
+		}
+		return total;
+	}
+
+	/*
+	 * The price histories are guarded by the table, so they are written under
+	 * its lock.
+	 */
+	private synchronized void writeObject(ObjectOutputStream output) throws IOException {
+		output.defaultWriteObject();
+	}
+
+	/*
+	 * The products are not part of the serialized table; they register again as
+	 * they are read back.
+	 */
+	private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+		input.defaultReadObject();
+		products = new ConcurrentHashMap<Integer, Product>();
+	}
+}
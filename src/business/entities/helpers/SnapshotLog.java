@@ -0,0 +1,281 @@
+package business.entities.helpers;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Helper class for the Store collections. Keeps values by key in insertion
+ * order and lets readers iterate over a consistent point-in-time view without
+ * taking any lock.
+ * 
+ * Values are appended to a log of entries. Every change gets a new version; an
+ * entry records the version it was added in and the version it was removed in.
+ * The log pages, its length and the current version are published together as
+ * one immutable state, so a reader that picks up the state sees exactly the
+ * entries that were live in that version, however the log changes afterwards.
+ * Removed entries are dropped from the log once they outnumber the live ones;
+ * readers of older states keep the pages they started with. Replacing a value
+ * copies the page holding it, so the value keeps its place and no version is
+ * published without it.
+ * 
+ * Writers must be serialized by the caller. Lookups by key read a concurrent
+ * index and need no lock either.
+ */
+public class SnapshotLog<K, V> implements Iterable<V>, Serializable {
+	private static final long serialVersionUID = 1L;
+	private static final int PAGE_BITS = 10;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	private static final int MIN_DEAD = 64;
+	private transient Map<K, Entry<K, V>> index;
+	private transient volatile State<K, V> state;
+	private transient int dead;
+
+	private static class Entry<K, V> {
+		private final K key;
+		private final V value;
+		private final long added;
+		private volatile long removed = Long.MAX_VALUE;
+		private int position;
+
+		private Entry(K key, V value, long added, int position) {
+			this.key = key;
+			this.value = value;
+			this.added = added;
+			this.position = position;
+		}
+
+		private boolean liveIn(long version) {
+			return added <= version && removed > version;
+		}
+	}
+
+	private static class State<K, V> {
+		private final Entry<K, V>[][] pages;
+		private final int size;
+		private final long version;
+
+		private State(Entry<K, V>[][] pages, int size, long version) {
+			this.pages = pages;
+			this.size = size;
+			this.version = version;
+		}
+
+		private Entry<K, V> get(int position) {
+			return pages[position >>> PAGE_BITS][position & PAGE_MASK];
+		}
+	}
+
+	/**
+	 * Creates an empty log
+	 */
+	public SnapshotLog() {
+		clear();
+	}
+
+	/**
+	 * Adds a value, or replaces the value stored under the same key in its
+	 * place
+	 * 
+	 * @param key   the key of the value
+	 * @param value the value
+	 */
+	public void put(K key, V value) {
+		State<K, V> current = state;
+		long version = current.version + 1;
+		Entry<K, V>[][] pages = current.pages;
+		int size = current.size;
+		Entry<K, V> replaced = index.get(key);
+		int position;
+		if (replaced != null) {
+			position = replaced.position;
+			pages = pages.clone();
+			pages[position >>> PAGE_BITS] = pages[position >>> PAGE_BITS].clone();
+			replaced.removed = version;
+		} else {
+			position = size++;
+			if ((position & PAGE_MASK) == 0 && position >>> PAGE_BITS == pages.length) {
+				pages = Arrays.copyOf(pages, pages.length + 1);
+				pages[pages.length - 1] = newPage();
+			}
+		}
+		Entry<K, V> entry = new Entry<K, V>(key, value, version, position);
+		pages[position >>> PAGE_BITS][position & PAGE_MASK] = entry;
+		index.put(key, entry);
+		state = new State<K, V>(pages, size, version);
+	}
+
+	/**
+	 * Removes the value stored under a key
+	 * 
+	 * @param key the key of the value
+	 * @return the value removed, or null if there was none
+	 */
+	public V remove(K key) {
+		Entry<K, V> entry = index.remove(key);
+		if (entry == null) {
+			return null;
+		}
+		State<K, V> current = state;
+		long version = current.version + 1;
+		entry.removed = version;
+		dead++;
+		if (dead >= MIN_DEAD && dead > index.size()) {
+			compact(version);
+		} else {
+			state = new State<K, V>(current.pages, current.size, version);
+		}
+		return entry.value;
+	}
+
+	/**
+	 * @param key the key of the value
+	 * @return the value stored under the key, or null if there is none
+	 */
+	public V get(K key) {
+		Entry<K, V> entry = index.get(key);
+		return entry == null ? null : entry.value;
+	}
+
+	/**
+	 * @param key the key of the value
+	 * @return true if a value is stored under the key
+	 */
+	public boolean containsKey(K key) {
+		return index.containsKey(key);
+	}
+
+	/**
+	 * @return the number of values
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * @return true if there are no values
+	 */
+	public boolean isEmpty() {
+		return index.isEmpty();
+	}
+
+	/**
+	 * Returns an iterator to the values as they are now, in insertion order.
+	 * Later changes are not seen by the iterator. No lock is needed.
+	 * 
+	 * @return iterator to a snapshot of the values
+	 */
+	@Override
+	public Iterator<V> iterator() {
+		State<K, V> snapshot = state;
+		return new Iterator<V>() {
+			private int position = advance(0);
+
+			private int advance(int from) {
+				while (from < snapshot.size && !snapshot.get(from).liveIn(snapshot.version)) {
+					from++;
+				}
+				return from;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return position < snapshot.size;
+			}
+
+			@Override
+			public V next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				V value = snapshot.get(position).value;
+				position = advance(position + 1);
+				return value;
+			}
+		};
+	}
+
+	/*
+	 * Copies the live entries into new pages. The old pages stay as they are
+	 * for readers still using them.
+	 */
+	private void compact(long version) {
+		State<K, V> current = state;
+		Entry<K, V>[][] pages = newPages(0);
+		int size = 0;
+		for (int position = 0; position < current.size; position++) {
+			Entry<K, V> entry = current.get(position);
+			if (entry.liveIn(version)) {
+				if ((size & PAGE_MASK) == 0) {
+					pages = Arrays.copyOf(pages, pages.length + 1);
+					pages[pages.length - 1] = newPage();
+				}
+				pages[size >>> PAGE_BITS][size & PAGE_MASK] = entry;
+				entry.position = size++;
+			}
+		}
+		dead = 0;
+		state = new State<K, V>(pages, size, version);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Entry<K, V>[][] newPages(int count) {
+		return (Entry<K, V>[][]) new Entry<?, ?>[count][];
+	}
+
+	@SuppressWarnings("unchecked")
+	private Entry<K, V>[] newPage() {
+		return (Entry<K, V>[]) new Entry<?, ?>[PAGE_SIZE];
+	}
+
+	private void clear() {
+		index = new ConcurrentHashMap<K, Entry<K, V>>();
+		state = new State<K, V>(newPages(0), 0, 0);
+		dead = 0;
+	}
+
+	/**
+	 * String form of the values
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (V value : this) {
+			builder.append(builder.length() > 1 ? ", " : "").append(value);
+		}
+		return builder.append("]").toString();
+	}
+
+	private void writeObject(ObjectOutputStream output) throws IOException {
+		output.defaultWriteObject();
+		output.writeInt(index.size());
+		for (Iterator<Entry<K, V>> entries = liveEntries(); entries.hasNext();) {
+			Entry<K, V> entry = entries.next();
+			output.writeObject(entry.key);
+			output.writeObject(entry.value);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+		input.defaultReadObject();
+		clear();
+		int size = input.readInt();
+		for (int count = 0; count < size; count++) {
+			put((K) input.readObject(), (V) input.readObject());
+		}
+	}
+
+	private Iterator<Entry<K, V>> liveEntries() {
+		State<K, V> snapshot = state;
+		return Arrays.stream(snapshot.pages).flatMap(Arrays::stream).limit(snapshot.size)
+				.filter(entry -> entry.liveIn(snapshot.version)).iterator();
+	}
+}
@@ -0,0 +1,126 @@
+package business.entities.helpers;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import business.entities.Product;
+
+/**
+ * Helper class for the Store inventory. Keeps products in a min-heap ordered by
+ * how far their stock on hand is above the reorder level, so the products
+ * closest to running out can be listed without looking at the whole catalog.
+ * The position of every product in the heap is indexed by product id, so the
+ * heap can be repaired in logarithmic time when the stock of a product changes.
+ * 
+ * The heap orders products by the margin they had when they were last inserted
+ * or updated. Stock may change at any time on other threads; it only affects
+ * the heap once update() is called for the product.
+ */
+public class StockHeap implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private List<Product> heap = new ArrayList<Product>();
+	private List<Integer> margins = new ArrayList<Integer>();
+	private Map<String, Integer> positions = new HashMap<String, Integer>();
+
+	/**
+	 * Adds a product to the heap
+	 * 
+	 * @param product the product to be added
+	 */
+	public void insert(Product product) {
+		heap.add(product);
+		margins.add(currentMargin(product));
+		positions.put(product.getId(), heap.size() - 1);
+		siftUp(heap.size() - 1);
+	}
+
+	/**
+	 * Moves a product to its new place after its stock on hand or reorder level
+	 * has changed
+	 * 
+	 * @param product the product that changed
+	 */
+	public void update(Product product) {
+		Integer position = positions.get(product.getId());
+		if (position != null) {
+			margins.set(position, currentMargin(product));
+			siftDown(siftUp(position));
+		}
+	}
+
+	/**
+	 * Returns the products with the least stock above their reorder level, the
+	 * lowest first. Only the part of the heap holding the answer is visited.
+	 * 
+	 * @param count the number of products wanted
+	 * @return up to count products
+	 */
+	public List<Product> lowest(int count) {
+		List<Product> lowest = new ArrayList<Product>();
+		PriorityQueue<Integer> candidates = new PriorityQueue<Integer>(
+				(first, second) -> Integer.compare(margin(first), margin(second)));
+		if (!heap.isEmpty()) {
+			candidates.add(0);
+		}
+		while (lowest.size() < count && !candidates.isEmpty()) {
+			int position = candidates.remove();
+			lowest.add(heap.get(position));
+			for (int child = 2 * position + 1; child <= 2 * position + 2 && child < heap.size(); child++) {
+				candidates.add(child);
+			}
+		}
+		return lowest;
+	}
+
+	/*
+	 * The heap key: stock on hand above the reorder level.
+	 */
+	private static int currentMargin(Product product) {
+		return product.getStockOnHand() - product.getReorderLevel();
+	}
+
+	private int margin(int position) {
+		return margins.get(position);
+	}
+
+	private int siftUp(int position) {
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (margin(parent) <= margin(position)) {
+				break;
+			}
+			swap(position, parent);
+			position = parent;
+		}
+		return position;
+	}
+
+	private int siftDown(int position) {
+		while (true) {
+			int smallest = position;
+			for (int child = 2 * position + 1; child <= 2 * position + 2 && child < heap.size(); child++) {
+				if (margin(child) < margin(smallest)) {
+					smallest = child;
+				}
+			}
+			if (smallest == position) {
+				return position;
+			}
+			swap(position, smallest);
+			position = smallest;
+		}
+	}
+
+	private void swap(int first, int second) {
+		Product product = heap.get(first);
+		heap.set(first, heap.get(second));
+		heap.set(second, product);
+		margins.set(first, margins.set(second, margins.get(first)));
+		positions.put(heap.get(first).getId(), first);
+		positions.put(heap.get(second).getId(), second);
+	}
+}
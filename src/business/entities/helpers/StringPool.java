@@ -0,0 +1,36 @@
+package business.entities.helpers;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Helper class for sharing equal strings. Member fields such as the fee and
+ * the address repeat across many members; interning them makes all members
+ * with the same value refer to one String. The pool holds its strings weakly,
+ * so values no member uses any more are dropped. The pool may be shared by
+ * several threads.
+ */
+public class StringPool {
+	private Map<String, WeakReference<String>> strings = new WeakHashMap<String, WeakReference<String>>();
+
+	/**
+	 * Returns the pooled string equal to the value, adding the value to the
+	 * pool if there is none.
+	 * 
+	 * @param value the string to be shared
+	 * @return a string equal to value
+	 */
+	public synchronized String intern(String value) {
+		if (value == null) {
+			return null;
+		}
+		WeakReference<String> reference = strings.get(value);
+		String pooled = reference == null ? null : reference.get();
+		if (pooled == null) {
+			strings.put(value, new WeakReference<String>(value));
+			pooled = value;
+		}
+		return pooled;
+	}
+}
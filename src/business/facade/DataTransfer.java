@@ -4,12 +4,14 @@ import business.entities.Member;
 import business.entities.Order;
 import business.entities.Product;
 import business.entities.Transaction;
+import business.entities.helpers.Money;
 
 /**
  * The DataTransfer class is used to facilitate data transfer between Store and
  * UserInterface. It is also used to support iterating over Member and Product
  * objects. The class stores copies of fields that may be sent in either
- * direction.
+ * direction. Prices are exchanged as text, such as "4.50"; the Store converts
+ * them to cents once, when they are received.
  * 
  * @author Brahma Dathan
  */
@@ -88,7 +90,7 @@ public abstract class DataTransfer {
     public void setProductFields(Product product) {
         productId = product.getId();
         productName = product.getName();
-        productPrice = product.getPrice();
+        productPrice = Money.format(product.getPrice());
         productReorderLevel = product.getReorderLevel();
         productStockOnHand = product.getStockOnHand();
     }
@@ -0,0 +1,115 @@
+package business.facade;
+
+/**
+ * A checkout lane of the store. Each lane owns its own request and the
+ * transaction it is ringing up, so several lanes can check out members at the
+ * same time without sharing the Request singleton. Lanes are obtained from
+ * Store.openLane(); a lane is meant to be used by one caller at a time.
+ */
+public class Lane {
+    private Store store;
+    private Request request = Request.create();
+
+    /**
+     * Creates a lane of the given store
+     * 
+     * @param store the store the lane belongs to
+     */
+    Lane(Store store) {
+        this.store = store;
+    }
+
+    /**
+     * Starts a transaction for a member. A transaction still open on the lane
+     * is dropped.
+     * 
+     * @param memberId the id of the member checking out
+     * @return result with the member fields, or NO_SUCH_MEMBER
+     */
+    public Result beginTransaction(String memberId) {
+        request.reset();
+        request.setMemberId(memberId);
+        Result result = store.searchMembership(request);
+        if (result.getResultCode() != Result.OPERATION_COMPLETED) {
+            return result;
+        }
+        store.beginTransaction(request);
+        return result;
+    }
+
+    /**
+     * Adds a product to the open transaction
+     * 
+     * @param productId the id of the product
+     * @param amount    the number of items bought
+     * @return result with the product fields, PRODUCT_NOT_FOUND, or
+     *         OPERATION_FAILED if no transaction is open
+     */
+    public Result checkOutItem(String productId, int amount) {
+        if (!hasTransaction()) {
+            return failed();
+        }
+        request.setProductId(productId);
+        request.setPurchaseAmount(amount);
+        return store.checkOutItem(request);
+    }
+
+    /**
+     * Builds the receipt of the open transaction
+     * 
+     * @return result with the receipt as transaction result, or
+     *         OPERATION_FAILED if no transaction is open
+     */
+    public Result displayPurchases() {
+        if (!hasTransaction()) {
+            return failed();
+        }
+        return store.displayPurchases(request);
+    }
+
+    /**
+     * Saves the open transaction and adjusts the inventory. The lane is then
+     * free for the next member.
+     * 
+     * @return result with the member fields and the orders placed, or
+     *         OPERATION_FAILED if no transaction is open
+     */
+    public Result finalizeTransaction() {
+        if (!hasTransaction()) {
+            return failed();
+        }
+        Result result = store.finalizeTransaction(request);
+        request.setCurrentTransaction(null);
+        return result;
+    }
+
+    /**
+     * Drops the open transaction without saving it. Nothing has been taken
+     * from the inventory yet, so nothing needs to be undone.
+     * 
+     * @return OPERATION_COMPLETED, or OPERATION_FAILED if no transaction is
+     *         open
+     */
+    public Result cancelTransaction() {
+        if (!hasTransaction()) {
+            return failed();
+        }
+        request.setCurrentTransaction(null);
+        Result result = new Result();
+        result.setResultCode(Result.OPERATION_COMPLETED);
+        return result;
+    }
+
+    /**
+     * @return true if a transaction is open on the lane
+     */
+    public boolean hasTransaction() {
+        return request.getCurrentTransaction() != null;
+    }
+
+    private Result failed() {
+        Result result = new Result();
+        result.setResultCode(Result.OPERATION_FAILED);
+        return result;
+    }
+}
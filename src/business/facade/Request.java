@@ -34,6 +34,16 @@ public class Request extends DataTransfer {
         return request;
     }
 
+    /**
+     * Creates a request of its own for a caller that must not share the
+     * singleton, such as a checkout lane running on its own thread.
+     * 
+     * @return a new request
+     */
+    public static Request create() {
+        return new Request();
+    }
+
     public Calendar getBeginDate() {
         return beginDate;
     }
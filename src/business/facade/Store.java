@@ -25,21 +25,54 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
 
 import business.entities.Member;
 import business.entities.Order;
 import business.entities.Product;
 import business.entities.Transaction;
+import business.entities.helpers.ArrayProductTable;
 import business.entities.helpers.LineItem;
-import business.entities.iterators.FilteredOrderIterator;
+import business.entities.helpers.LockStripes;
+import business.entities.helpers.MappedProductTable;
+import business.entities.helpers.Money;
+import business.entities.helpers.PrefixIndex;
+import business.entities.helpers.SnapshotLog;
+import business.entities.helpers.ProductTable;
+import business.entities.helpers.StockHeap;
+import business.entities.helpers.StringPool;
 import business.entities.iterators.SafeIterator;
 
 /**
  * The facade class handling all requests from users.
  * 
+ * The store may be used by several threads at once. Each collection guards its
+ * indexes with its own lock, and changes to a single member, and to the price
+ * of a single product, are made under a lock striped by the member or product
+ * id. Operations on different products and members therefore do not wait for
+ * each other. Stock on hand is an atomic counter and is changed without
+ * locking. The product, member and outstanding order listings read a
+ * point-in-time snapshot of their collection and neither wait for nor hold up
+ * writers.
+ * 
  * @author Brahma Dathan
  */
 public class Store implements Serializable {
@@ -48,7 +81,13 @@ public class Store implements Serializable {
     private Inventory inventory = new Inventory();
     private MemberList members = new MemberList();
     private OrderList orders = new OrderList();
-    private static Store store;
+    private TransactionLog transactions = new TransactionLog();
+    private transient StringPool strings = new StringPool();
+    private String archiveDirectory = ".";
+    private LockStripes productLocks = new LockStripes(LOCK_STRIPES);
+    private LockStripes memberLocks = new LockStripes(LOCK_STRIPES);
+    private static final int LOCK_STRIPES = 64;
+    private static volatile Store store;
 
     /**
      * @author Brahma Dathan and Sarnath Ramnath -
@@ -65,46 +104,63 @@ public class Store implements Serializable {
      */
 
     /**
-     * The collection class for Product objects
+     * The collection class for Product objects. The indexes are guarded by a
+     * read-write lock, except that lookups by id take no lock. The stock
+     * levels of single products are atomic counters changed without locking;
+     * a change only marks the product, and the low stock heap is repaired for
+     * the marked products when it is queried.
+     * 
+     * A product table that indexes its ids, such as a memory-mapped one, holds
+     * the whole catalog. Lookups by id then go to the table, and only the
+     * table is saved with the store. The name, prefix and low stock indexes
+     * are built from the table the first time one of them is needed.
      * 
      * @author Brahma Dathan and Sarnath Ramnath
      */
     private class Inventory implements Iterable<Product>, Serializable {
         private static final long serialVersionUID = 1L;
-        private List<Product> products = new LinkedList<Product>();
+        private transient SnapshotLog<String, Product> products = new SnapshotLog<String, Product>();
+        private transient Map<String, Product> productNames = new HashMap<String, Product>();
+        private boolean ignoreNameCase;
+        private boolean collapseNameWhitespace;
+        private transient PrefixIndex<Product> namePrefixes = new PrefixIndex<Product>();
+        private transient StockHeap stockLevels = new StockHeap();
+        private Map<String, Product> stockChanges = new ConcurrentHashMap<String, Product>();
+        private ProductTable table = new ArrayProductTable();
+        private transient volatile boolean indexed = true;
+        private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
         /**
-         * Checks whether a product with a given product id exists.
+         * Checks whether a product with a given product id exists. Products are
+         * indexed by id, so the lookup does not depend on the catalog size. No
+         * lock is taken.
          * 
          * @param productId the name of the product
          * @return true if the product exists
          */
         public Product search(String productId) {
-            for (Iterator<Product> iterator = products.iterator(); iterator
-                    .hasNext();) {
-                Product product = (Product) iterator.next();
-                if (product.getId().equals(productId)) {
-                    return product;
-                }
+            if (table.indexesIds()) {
+                int ordinal = table.ordinalOf(productId);
+                return ordinal < 0 ? null : table.getProduct(ordinal);
             }
-            return null;
+            return products.get(productId);
         }
 
         /**
-         * Checks whether a product with a given product name exists.
+         * Checks whether a product with a given product name exists. Names are
+         * compared after normalization with the current name policy.
          * 
          * @param productName the name of the product
          * @return true if the product exists
          */
         public Product searchName(String productName) {
-            for (Iterator<Product> iterator = products.iterator(); iterator
-                    .hasNext();) {
-                Product product = (Product) iterator.next();
-                if (product.getName().equals(productName)) {
-                    return product;
-                }
+            buildIndexes();
+            lock.readLock().lock();
+            try {
+                return productNames.get(normalizeName(productName));
+            } finally {
+                lock.readLock().unlock();
             }
-            return null;
         }
 
         /**
@@ -114,16 +170,256 @@ public class Store implements Serializable {
          * @return true if the product could be inserted. Currently always true
          */
         public boolean insertProduct(Product product) {
-            products.add(product);
-            return true;
+            lock.writeLock().lock();
+            try {
+                if (table.indexesIds()) {
+                    table.putProduct(product.getOrdinal(), product);
+                } else {
+                    products.put(product.getId(), product);
+                }
+                if (indexed) {
+                    productNames.putIfAbsent(normalizeName(product.getName()),
+                            product);
+                    namePrefixes.insert(product.getName(), product.getId(),
+                            product);
+                    synchronized (stockLevels) {
+                        stockLevels.insert(product);
+                    }
+                }
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Adds a new product unless its id or name is already in use. The
+         * check and the insertion are done under one lock, so two callers
+         * cannot add the same product.
+         * 
+         * @param id           the id of the product
+         * @param name         the name of the product
+         * @param price        the price in cents
+         * @param reorderLevel the reorder level
+         * @param stockOnHand  the stock on hand
+         * @return the new product, or null if the id or the name is in use
+         */
+        public Product addProduct(String id, String name, long price,
+                int reorderLevel, int stockOnHand) {
+            buildIndexes();
+            lock.writeLock().lock();
+            try {
+                if (search(id) != null
+                        || productNames.containsKey(normalizeName(name))) {
+                    return null;
+                }
+                Product product = new Product(name, id, price, reorderLevel,
+                        stockOnHand, table);
+                insertProduct(product);
+                return product;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Returns the table that holds the numeric fields of the products
+         * 
+         * @return the product table
+         */
+        public ProductTable getTable() {
+            return table;
+        }
+
+        /**
+         * Replaces the product table of an empty inventory. Products already
+         * stored in the new table become part of the inventory. A table that
+         * indexes its ids is used as it is; its rows are only read when an
+         * index that the table does not keep is first needed.
+         * 
+         * @param table the new product table
+         * @return true if the table could be used
+         */
+        public boolean useTable(ProductTable table) {
+            lock.writeLock().lock();
+            try {
+                if (this.table.size() > 0) {
+                    return false;
+                }
+                this.table = table;
+                if (table.indexesIds()) {
+                    indexed = table.size() == 0;
+                } else {
+                    for (int ordinal = 0; ordinal < table.size(); ordinal++) {
+                        insertProduct(table.getProduct(ordinal));
+                    }
+                }
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Builds the name, prefix and low stock indexes from the product table
+         * if they have not been built yet. The stock marks are cleared before
+         * the stock is read, so a change made meanwhile marks the product
+         * again.
+         */
+        private void buildIndexes() {
+            if (indexed) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                if (indexed) {
+                    return;
+                }
+                productNames = new HashMap<String, Product>();
+                namePrefixes = new PrefixIndex<Product>();
+                StockHeap levels = new StockHeap();
+                stockChanges.clear();
+                for (Product product : this) {
+                    productNames.putIfAbsent(normalizeName(product.getName()),
+                            product);
+                    namePrefixes.insert(product.getName(), product.getId(),
+                            product);
+                    levels.insert(product);
+                }
+                stockLevels = levels;
+                indexed = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Computes the value of all stock on hand with a scan of the product
+         * table
+         * 
+         * @return the value in cents
+         */
+        public long getValue() {
+            lock.readLock().lock();
+            try {
+                return table.totalValue();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Changes the stock on hand of a product atomically and marks the
+         * product for the low stock index. No lock is taken: a product that is
+         * already marked is only looked up.
+         * 
+         * @param product the product whose stock changes
+         * @param delta   the change in stock, negative for a sale
+         * @return the stock on hand after the change
+         */
+        public int addStockOnHand(Product product, int delta) {
+            int stockOnHand = product.addStockOnHand(delta);
+            if (!stockChanges.containsKey(product.getId())) {
+                stockChanges.putIfAbsent(product.getId(), product);
+            }
+            return stockOnHand;
+        }
+
+        /**
+         * Returns the products closest to running out. The products whose
+         * stock changed since the last query are moved to their new places
+         * first. A mark is cleared before the stock is read, so a change made
+         * meanwhile marks the product again.
+         * 
+         * @param count the number of products wanted
+         * @return iterator to the products, lowest stock first
+         */
+        public Iterator<Product> searchLowStock(int count) {
+            buildIndexes();
+            synchronized (stockLevels) {
+                for (Iterator<Product> changed = stockChanges.values()
+                        .iterator(); changed.hasNext();) {
+                    Product product = changed.next();
+                    changed.remove();
+                    stockLevels.update(product);
+                }
+                return stockLevels.lowest(count).iterator();
+            }
+        }
+
+        /**
+         * Returns an iterator to the products whose name starts with the given
+         * prefix, ignoring case
+         * 
+         * @param prefix the start of the product name
+         * @return iterator to the matching products
+         */
+        public Iterator<Product> searchPrefix(String prefix) {
+            buildIndexes();
+            lock.readLock().lock();
+            try {
+                return copy(namePrefixes.startingWith(prefix));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Changes how product names are compared and rebuilds the name index
+         * under the new policy.
+         * 
+         * @param ignoreCase         true if names differing only in case
+         *                           collide
+         * @param collapseWhitespace true if leading and trailing whitespace is
+         *                           ignored and inner runs of whitespace count
+         *                           as a single space
+         */
+        public void setNamePolicy(boolean ignoreCase,
+                boolean collapseWhitespace) {
+            lock.writeLock().lock();
+            try {
+                ignoreNameCase = ignoreCase;
+                collapseNameWhitespace = collapseWhitespace;
+                if (indexed) {
+                    productNames.clear();
+                    for (Product product : this) {
+                        productNames.putIfAbsent(
+                                normalizeName(product.getName()), product);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Returns the key under which a name is stored in the name index
+         * 
+         * @param productName the name of the product
+         * @return the normalized name
+         */
+        private String normalizeName(String productName) {
+            String name = productName;
+            if (collapseNameWhitespace) {
+                name = name.trim().replaceAll("\\s+", " ");
+            }
+            if (ignoreNameCase) {
+                name = name.toUpperCase();
+            }
+            return name;
         }
 
         /**
-         * Returns an iterator to all products
+         * Returns an iterator to all products, in the order they were added.
+         * The iterator sees the catalog as it is now and takes no lock.
          * 
          * @return iterator to the collection
          */
         public Iterator<Product> iterator() {
+            if (table.indexesIds()) {
+                return IntStream.range(0, table.size())
+                        .mapToObj(table::getProduct).iterator();
+            }
             return products.iterator();
         }
 
@@ -131,32 +427,80 @@ public class Store implements Serializable {
          * String form of the collection
          */
         public String toString() {
-            return products.toString();
+            StringBuilder builder = new StringBuilder("[");
+            for (Product product : this) {
+                builder.append(builder.length() > 1 ? ", " : "")
+                        .append(product);
+            }
+            return builder.append("]").toString();
+        }
+
+        /*
+         * A table that indexes its ids holds the whole catalog, so the indexes
+         * are only written for the heap table. They are built again from a
+         * table read back when first needed.
+         */
+        private void writeObject(ObjectOutputStream output)
+                throws IOException {
+            lock.readLock().lock();
+            try {
+                output.defaultWriteObject();
+                if (!table.indexesIds()) {
+                    output.writeObject(products);
+                    output.writeObject(productNames);
+                    output.writeObject(namePrefixes);
+                    synchronized (stockLevels) {
+                        output.writeObject(stockLevels);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void readObject(ObjectInputStream input)
+                throws IOException, ClassNotFoundException {
+            input.defaultReadObject();
+            if (table.indexesIds()) {
+                products = new SnapshotLog<String, Product>();
+                productNames = new HashMap<String, Product>();
+                namePrefixes = new PrefixIndex<Product>();
+                stockLevels = new StockHeap();
+                indexed = table.size() == 0;
+            } else {
+                products = (SnapshotLog<String, Product>) input.readObject();
+                productNames = (Map<String, Product>) input.readObject();
+                namePrefixes = (PrefixIndex<Product>) input.readObject();
+                stockLevels = (StockHeap) input.readObject();
+                indexed = true;
+            }
         }
     }
 
     /**
-     * The collection class for Member objects
+     * The collection class for Member objects. The indexes are guarded by a
+     * read-write lock, except that lookups by id take no lock. The
+     * transactions of single members are changed under the member locks of
+     * the store.
      */
     private class MemberList implements Iterable<Member>, Serializable {
         private static final long serialVersionUID = 1L;
-        private List<Member> members = new LinkedList<Member>();
+        private SnapshotLog<String, Member> members = new SnapshotLog<String, Member>();
+        private PrefixIndex<Member> namePrefixes = new PrefixIndex<Member>();
+        private Map<String, List<Member>> phones = new HashMap<String, List<Member>>();
+        private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
         /**
-         * Checks whether a member with a given member id exists.
+         * Checks whether a member with a given member id exists. Members are
+         * indexed by id, so the lookup does not depend on the number of
+         * members. No lock is taken.
          * 
          * @param memberId the id of the member
          * @return true if member exists
          */
         public Member search(String memberId) {
-            for (Iterator<Member> iterator = members.iterator(); iterator
-                    .hasNext();) {
-                Member member = iterator.next();
-                if (member.getId().equals(memberId)) {
-                    return member;
-                }
-            }
-            return null;
+            return members.get(memberId);
         }
 
         /**
@@ -167,14 +511,78 @@ public class Store implements Serializable {
          * @return true if Member could be removed
          */
         public boolean removeMember(String memberId) {
-            Member member = search(memberId);
-            if (member == null) {
-                return false;
-            } else {
-                return members.remove(member);
+            lock.writeLock().lock();
+            try {
+                Member member = members.remove(memberId);
+                if (member == null) {
+                    return false;
+                } else {
+                    namePrefixes.remove(member.getName(), member.getId());
+                    removePhone(member);
+                    return true;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Finds the member with a given phone number. Only the digits of the
+         * number are compared. If several members share a number, the one who
+         * enrolled first is returned.
+         * 
+         * @param phone the phone number of the member
+         * @return the member, or null if no member has that number
+         */
+        public Member searchPhone(String phone) {
+            lock.readLock().lock();
+            try {
+                List<Member> owners = phones.get(normalizePhone(phone));
+                return owners == null ? null : owners.get(0);
+            } finally {
+                lock.readLock().unlock();
             }
         }
 
+        /**
+         * Changes the phone number of a member and keeps the phone index in
+         * step with it
+         * 
+         * @param member the member whose number changes
+         * @param phone  the new phone number
+         */
+        public void changePhone(Member member, String phone) {
+            lock.writeLock().lock();
+            try {
+                removePhone(member);
+                member.setPhone(phone);
+                addPhone(member);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void addPhone(Member member) {
+            phones.computeIfAbsent(normalizePhone(member.getPhone()),
+                    key -> new ArrayList<Member>(1)).add(member);
+        }
+
+        private void removePhone(Member member) {
+            String key = normalizePhone(member.getPhone());
+            List<Member> owners = phones.get(key);
+            if (owners != null && owners.remove(member) && owners.isEmpty()) {
+                phones.remove(key);
+            }
+        }
+
+        /*
+         * Phone numbers are indexed by their digits only, so that 555-1234 and
+         * (555) 1234 are the same number.
+         */
+        private String normalizePhone(String phone) {
+            return phone.replaceAll("\\D", "");
+        }
+
         /**
          * Inserts a member into the collection
          * 
@@ -183,10 +591,39 @@ public class Store implements Serializable {
          * @return true if the member could be inserted. Will always be true
          */
         public boolean insertMember(Member member) {
-            members.add(member);
-            return true;
+            lock.writeLock().lock();
+            try {
+                members.put(member.getId(), member);
+                namePrefixes.insert(member.getName(), member.getId(), member);
+                addPhone(member);
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Returns an iterator to the members whose name starts with the given
+         * prefix, ignoring case
+         * 
+         * @param prefix the start of the member name
+         * @return iterator to the matching members
+         */
+        public Iterator<Member> searchPrefix(String prefix) {
+            lock.readLock().lock();
+            try {
+                return copy(namePrefixes.startingWith(prefix));
+            } finally {
+                lock.readLock().unlock();
+            }
         }
 
+        /**
+         * Returns an iterator to all members, in the order they enrolled. The
+         * iterator sees the members as they are now and takes no lock.
+         * 
+         * @return iterator to the collection
+         */
         public Iterator<Member> iterator() {
             return members.iterator();
         }
@@ -198,10 +635,28 @@ public class Store implements Serializable {
         public String toString() {
             return members.toString();
         }
+
+        /*
+         * The indexes are written under the read lock, so a member being added
+         * or removed is either written everywhere or nowhere.
+         */
+        private void writeObject(ObjectOutputStream output)
+                throws IOException {
+            lock.readLock().lock();
+            try {
+                output.defaultWriteObject();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
     }
 
     /**
-     * The collection class for Order objects
+     * The collection class for Order objects. The indexes are guarded by a
+     * read-write lock. A sale places an order when it leaves the stock at or
+     * below the reorder level and the product has no outstanding order;
+     * placeOrder checks both again under the lock, so only one order is placed.
+     * An order is received only once.
      * 
      * Based on similar collection classes created by:
      * 
@@ -209,25 +664,25 @@ public class Store implements Serializable {
      */
     private class OrderList implements Iterable<Order>, Serializable {
         private static final long serialVersionUID = 1L;
-        private List<Order> orders = new LinkedList<Order>();
+        private Map<String, Order> orders = new LinkedHashMap<String, Order>();
+        private SnapshotLog<String, Order> outstandingOrders = new SnapshotLog<String, Order>();
+        private Map<String, Order> productOrders = new ConcurrentHashMap<String, Order>();
+        private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
         /**
          * Checks whether an order with a given order id exists and if that
-         * order is outstanding.
+         * order is outstanding. Only the outstanding orders are looked at.
          * 
          * @param orderId the id of the order
          * @return Order object if orderId is a match and order is outstanding
          */
         public Order search(String orderId) {
-            for (Iterator<Order> iterator = orders.iterator(); iterator
-                    .hasNext();) {
-                Order order = (Order) iterator.next();
-                if (order.getId().equals(orderId)
-                        && order.isOutstanding() == true) {
-                    return order;
-                }
+            lock.readLock().lock();
+            try {
+                return outstandingOrders.get(orderId);
+            } finally {
+                lock.readLock().unlock();
             }
-            return null;
         }
 
         /**
@@ -237,13 +692,90 @@ public class Store implements Serializable {
          * @return true if the order could be inserted. Currently always true
          */
         public boolean insertOrder(Order order) {
-            orders.add(order);
-            return true;
+            lock.writeLock().lock();
+            try {
+                orders.put(order.getId(), order);
+                if (order.isOutstanding()) {
+                    outstandingOrders.put(order.getId(), order);
+                    productOrders.put(order.getProductOrdered().getId(), order);
+                }
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
         }
 
+        /**
+         * Checks whether a product has an outstanding order. No lock is taken.
+         * 
+         * @param productId the id of the product
+         * @return the outstanding order for the product, or null if there is
+         *         none
+         */
+        public Order searchProduct(String productId) {
+            return productOrders.get(productId);
+        }
+
+        /**
+         * Places an order for a product that is at or below its reorder level
+         * and has no outstanding order. Both conditions are checked again under
+         * the lock, so sales on several lanes place at most one order.
+         * 
+         * @param product  the product to be ordered
+         * @param quantity the quantity to order
+         * @return the new order, or null if none was needed
+         */
+        public Order placeOrder(Product product, int quantity) {
+            lock.writeLock().lock();
+            try {
+                if (productOrders.containsKey(product.getId()) || product
+                        .getStockOnHand() > product.getReorderLevel()) {
+                    return null;
+                }
+                Order order = new Order(product, quantity);
+                insertOrder(order);
+                return order;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Marks an order as received, adds the quantity ordered to the stock
+         * of the product and takes the order off the outstanding orders. The
+         * stock is added before the order is closed, so a sale never finds the
+         * product low without an outstanding order while a shipment is being
+         * received. Of several callers receiving the same order, only one
+         * succeeds.
+         * 
+         * @param order   the order that was received
+         * @param product the product in the inventory
+         * @return true if the order was outstanding
+         */
+        public boolean fulfillOrder(Order order, Product product) {
+            lock.writeLock().lock();
+            try {
+                if (outstandingOrders.remove(order.getId()) == null) {
+                    return false;
+                }
+                inventory.addStockOnHand(product, order.getQtyOrdered());
+                order.updateStatus(false);
+                productOrders.remove(order.getProductOrdered().getId(), order);
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Returns an iterator to the outstanding orders, in the order they
+         * were placed. The iterator sees the orders outstanding now and takes
+         * no lock.
+         * 
+         * @return iterator to the outstanding orders
+         */
         public Iterator<Order> getOutstandingOrders() {
-            return new FilteredOrderIterator(orders.iterator(),
-                    order -> order.isOutstanding());
+            return outstandingOrders.iterator();
         }
 
         /**
@@ -252,14 +784,158 @@ public class Store implements Serializable {
          * @return iterator to the collection
          */
         public Iterator<Order> iterator() {
-            return orders.iterator();
+            lock.readLock().lock();
+            try {
+                return copy(orders.values().iterator());
+            } finally {
+                lock.readLock().unlock();
+            }
         }
 
         /**
          * String form of the collection
          */
         public String toString() {
-            return orders.toString();
+            return orders.values().toString();
+        }
+
+        /*
+         * Orders are placed and received under the write lock, so the read lock
+         * keeps them from changing while they are written.
+         */
+        private void writeObject(ObjectOutputStream output)
+                throws IOException {
+            lock.readLock().lock();
+            try {
+                output.defaultWriteObject();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * The collection class for the transactions of all members. Transactions
+     * are partitioned by the day they took place, so a date range only visits
+     * the days it covers. The days are kept in a concurrent skip list and each
+     * day is a concurrent queue, so lanes finalizing at the same time append
+     * without taking a lock. A queue holds its day in the order transactions
+     * were finalized; queries sort what they find by time. The lock only
+     * guards the archive bookkeeping.
+     */
+    private class TransactionLog implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+        private ConcurrentSkipListMap<Long, Queue<Transaction>> days = new ConcurrentSkipListMap<Long, Queue<Transaction>>();
+        private volatile long archivedBefore = Long.MIN_VALUE;
+        private Map<String, Member> archivingMembers = new LinkedHashMap<String, Member>();
+        private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        /**
+         * Appends a transaction to the partition for its day
+         * 
+         * @param transaction the transaction to be inserted
+         * @return true if the transaction could be inserted. Currently always
+         *         true
+         */
+        public boolean insertTransaction(Transaction transaction) {
+            return days.computeIfAbsent(
+                    transaction.getTimeInMillis() / MILLIS_PER_DAY,
+                    key -> new ConcurrentLinkedQueue<Transaction>())
+                    .add(transaction);
+        }
+
+        /**
+         * Returns an iterator to the transactions between two dates. Only the
+         * first and last day partitions can hold transactions outside the
+         * range.
+         * 
+         * @param beginDate transactions must be after this date
+         * @param endDate   transactions must be before this date
+         * @return iterator to the transactions in time order
+         */
+        public Iterator<Transaction> getTransactionsBetweenDates(
+                Calendar beginDate, Calendar endDate) {
+            long firstDay = beginDate.getTimeInMillis() / MILLIS_PER_DAY;
+            long lastDay = endDate.getTimeInMillis() / MILLIS_PER_DAY;
+            List<Transaction> found = new ArrayList<Transaction>();
+            if (firstDay > lastDay) {
+                return found.iterator();
+            }
+            for (Queue<Transaction> day : days
+                    .subMap(firstDay, true, lastDay, true).values()) {
+                for (Transaction transaction : day) {
+                    if (transaction.betweenDates(beginDate, endDate)) {
+                        found.add(transaction);
+                    }
+                }
+            }
+            found.sort(
+                    Comparator.comparingLong(Transaction::getTimeInMillis));
+            return found.iterator();
+        }
+
+        /**
+         * Drops the archived transactions made before the given time. They
+         * remain available through the archives of the members, which are
+         * remembered even if the members are removed later. Transactions
+         * before the time that were not archived, such as those of members
+         * removed earlier, stay in the log. Emptied days are kept, since a
+         * lane may still be appending a late transaction to them.
+         * 
+         * @param time     the time before which transactions were archived
+         * @param archived the transactions moved into the archives of members
+         * @param members  the members whose archives received them
+         */
+        public void archiveBefore(long time, Set<Transaction> archived,
+                List<Member> members) {
+            lock.writeLock().lock();
+            try {
+                for (Member member : members) {
+                    archivingMembers.put(member.getId(), member);
+                }
+                for (Queue<Transaction> day : days
+                        .headMap(time / MILLIS_PER_DAY, true).values()) {
+                    day.removeIf(archived::contains);
+                }
+                archivedBefore = Math.max(archivedBefore, time);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * @return the members that have archived transactions, including
+         *         members that have been removed since
+         */
+        public List<Member> getArchivingMembers() {
+            lock.readLock().lock();
+            try {
+                return new ArrayList<Member>(archivingMembers.values());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * @return the time before which transactions have been archived
+         */
+        public long getArchivedBefore() {
+            return archivedBefore;
+        }
+
+        /*
+         * The read lock keeps an archive run from removing transactions while
+         * the days are written.
+         */
+        private void writeObject(ObjectOutputStream output)
+                throws IOException {
+            lock.readLock().lock();
+            try {
+                output.defaultWriteObject();
+            } finally {
+                lock.readLock().unlock();
+            }
         }
     }
 
@@ -271,16 +947,22 @@ public class Store implements Serializable {
     }
 
     /**
-     * Supports the singleton pattern
+     * Supports the singleton pattern. Checkout lanes on many threads call this,
+     * so the store is created at most once and published safely.
      * 
      * @return the singleton object
      */
     public static Store instance() {
-        if (store == null) {
-            return store = new Store();
-        } else {
-            return store;
+        Store current = store;
+        if (current == null) {
+            synchronized (Store.class) {
+                current = store;
+                if (current == null) {
+                    store = current = new Store();
+                }
+            }
         }
+        return current;
     }
 
     /**
@@ -292,10 +974,18 @@ public class Store implements Serializable {
      *                include productName, productCurrentPrice,
      *                productReorderLevel
      * @return result - result is of type Result and condition returned will be
-     *         OPERATION_COMPLETED or OPERATION_FAILED
+     *         OPERATION_COMPLETED, or OPERATION_FAILED if the price is not a
+     *         decimal amount
      */
     public Result addProduct(Request request) {
         Result result = new Result();
+        long price;
+        try {
+            price = Money.parse(request.getProductPrice());
+        } catch (NumberFormatException nfe) {
+            result.setResultCode(Result.OPERATION_FAILED);
+            return result;
+        }
         Product checkExists = inventory.search(request.getProductId());
         if (checkExists != null) {
             result.setResultCode(Result.PRODUCT_EXISTS);
@@ -306,24 +996,125 @@ public class Store implements Serializable {
             result.setResultCode(Result.NAME_IN_USE);
             return result;
         }
-        Product product = new Product(request.getProductName(),
-                request.getProductId(), request.getProductPrice(),
-                request.getProductReorderLevel(),
-                request.getProductStockOnHand());
-        if (inventory.insertProduct(product)) {
+        Lock lock = productLocks.lockFor(request.getProductId());
+        lock.lock();
+        try {
+            Product product = inventory.addProduct(request.getProductId(),
+                    request.getProductName(), price,
+                    request.getProductReorderLevel(),
+                    request.getProductStockOnHand());
+            if (product == null) {
+                result.setResultCode(
+                        inventory.search(request.getProductId()) != null
+                                ? Result.PRODUCT_EXISTS
+                                : Result.NAME_IN_USE);
+                return result;
+            }
             result.setResultCode(Result.OPERATION_COMPLETED);
             result.setProductFields(product);
             Order newOrder = new Order(product,
                     request.getProductReorderLevel() * 2);
             orders.insertOrder(newOrder);
             return result;
+        } finally {
+            lock.unlock();
         }
-        result.setResultCode(Result.OPERATION_FAILED);
-        return result;
     }
 
     /**
-     * Changes price of Product object.
+     * Keeps the products in a memory-mapped file instead of on the heap.
+     * Products already stored in the file become part of the inventory without
+     * being deserialized, and are found by id through the index kept with the
+     * file. Saving the store then writes only the file name. Only possible
+     * while the store has no products.
+     * 
+     * @param fileName the file holding the product records
+     * @return true if the file could be mapped and used
+     */
+    public boolean useMappedInventory(String fileName) {
+        try {
+            MappedProductTable table = new MappedProductTable(fileName);
+            if (!inventory.useTable(table)) {
+                table.close();
+                return false;
+            }
+            return true;
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Sets the directory where archived transactions are kept
+     * 
+     * @param directory the directory holding the archive segment files
+     */
+    public void setArchiveDirectory(String directory) {
+        archiveDirectory = directory;
+    }
+
+    /**
+     * @return the directory where archived transactions are kept
+     */
+    public String getArchiveDirectory() {
+        return archiveDirectory;
+    }
+
+    /**
+     * Moves the transactions made before the date in the request out of memory
+     * and into per-member segment files in the archive directory. Archived
+     * transactions are still returned by the transaction queries; they are read
+     * back from disk when a query reaches back to them.
+     * 
+     * @param request the date before which transactions are archived
+     * @return true if the transactions could be archived
+     */
+    public boolean archiveTransactions(Request request) {
+        long time = request.getDate().getTimeInMillis();
+        Set<Transaction> archived = Collections
+                .newSetFromMap(new IdentityHashMap<Transaction, Boolean>());
+        List<Member> archivingMembers = new ArrayList<Member>();
+        try {
+            for (Member member : members) {
+                Lock lock = memberLocks.lockFor(member.getId());
+                lock.lock();
+                try {
+                    List<Transaction> moved = member
+                            .archiveTransactionsBefore(time, archiveDirectory);
+                    if (!moved.isEmpty()) {
+                        archived.addAll(moved);
+                        archivingMembers.add(member);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+            return false;
+        } finally {
+            transactions.archiveBefore(time, archived, archivingMembers);
+        }
+        return true;
+    }
+
+    /**
+     * Sets the policy used when checking whether a product name is already in
+     * use. By default names must match exactly.
+     * 
+     * @param ignoreCase         true if names differing only in case collide
+     * @param collapseWhitespace true if names differing only in surrounding or
+     *                           repeated whitespace collide
+     */
+    public void setProductNamePolicy(boolean ignoreCase,
+            boolean collapseWhitespace) {
+        inventory.setNamePolicy(ignoreCase, collapseWhitespace);
+    }
+
+    /**
+     * Changes price of Product object. Fails with OPERATION_FAILED if the new
+     * price is not a decimal amount.
      * 
      * @author G.D.Ponsness (Modified from instructional code).
      * @param request information from the user
@@ -331,17 +1122,61 @@ public class Store implements Serializable {
      */
     public Result changePrice(Request request) {
         Result result = new Result();
+        long price;
+        try {
+            price = Money.parse(request.getProductPrice());
+        } catch (NumberFormatException nfe) {
+            result.setResultCode(Result.OPERATION_FAILED);
+            return result;
+        }
         Product product = inventory.search(request.getProductId());
         if (product == null) {
             result.setResultCode(Result.PRODUCT_NOT_FOUND);
             return result;
         }
-        product.setPrice(request.getProductPrice());
+        Lock lock = productLocks.lockFor(product.getId());
+        lock.lock();
+        try {
+            product.setPrice(price);
+        } finally {
+            lock.unlock();
+        }
         result.setResultCode(Result.OPERATION_COMPLETED);
         result.setProductFields(product);
         return result;
     }
 
+    /**
+     * Looks up the price a product had on the date in the request.
+     * 
+     * @param request the product id and the date
+     * @return result with Product information, the price being the one in
+     *         effect on the date
+     */
+    public Result getPriceOnDate(Request request) {
+        Result result = new Result();
+        Product product = inventory.search(request.getProductId());
+        if (product == null) {
+            result.setResultCode(Result.PRODUCT_NOT_FOUND);
+            return result;
+        }
+        result.setResultCode(Result.OPERATION_COMPLETED);
+        result.setProductFields(product);
+        result.setProductPrice(Money.format(
+                product.getPriceAt(request.getDate().getTimeInMillis())));
+        return result;
+    }
+
+    /**
+     * Opens a checkout lane. Each lane keeps its own request and transaction,
+     * so lanes can be used by different threads at the same time.
+     * 
+     * @return a new lane of the store
+     */
+    public Lane openLane() {
+        return new Lane(this);
+    }
+
     /**
      * Initialize new instance of Transaction class.
      * 
@@ -371,7 +1206,13 @@ public class Store implements Serializable {
             result.setResultCode(Result.PRODUCT_NOT_FOUND);
             return result;
         }
-        request.getCurrentTransaction().addItem(product, amount);
+        Lock lock = productLocks.lockFor(product.getId());
+        lock.lock();
+        try {
+            request.getCurrentTransaction().addItem(product, amount);
+        } finally {
+            lock.unlock();
+        }
         result.setResultCode(Result.OPERATION_COMPLETED);
         result.setProductFields(product);
         return result;
@@ -394,6 +1235,9 @@ public class Store implements Serializable {
 
     /**
      * Saves Transaction to member Object and initiates Inventory adjustment.
+     * The transaction is trimmed to its items before it is stored. The member
+     * is locked while the transaction is added; the stock of the products is
+     * adjusted without locking.
      * 
      * @author G.D.Ponsness
      * @param request information from the user
@@ -402,12 +1246,25 @@ public class Store implements Serializable {
     public Result finalizeTransaction(Request request) {
         Result result = new Result();
         Member member = members.search(request.getMemberId());
-        boolean transactionSaved = member
-                .addTransaction(request.getCurrentTransaction());
+        if (member == null) {
+            result.setResultCode(Result.NO_SUCH_MEMBER);
+            return result;
+        }
+        boolean transactionSaved;
+        request.getCurrentTransaction().trimToSize();
+        Lock memberLock = memberLocks.lockFor(member.getId());
+        memberLock.lock();
+        try {
+            transactionSaved = member
+                    .addTransaction(request.getCurrentTransaction());
+        } finally {
+            memberLock.unlock();
+        }
         if (!transactionSaved) {
             result.setResultCode(Result.OPERATION_FAILED);
             return result;
         }
+        transactions.insertTransaction(request.getCurrentTransaction());
         String ordersPlaced = "";
         Iterator<LineItem> lineItems = request.getCurrentTransaction()
                 .getLineItems();
@@ -421,7 +1278,11 @@ public class Store implements Serializable {
     }
 
     /**
-     * Adjusts Inventory and places Orders if needed
+     * Adjusts Inventory and places Orders if needed. The stock is taken off
+     * with one atomic add. An order is placed whenever the stock is at or below
+     * the reorder level and the product has no outstanding order; that check
+     * takes no lock, and OrderList.placeOrder repeats it under its lock, so
+     * concurrent sales place only one order.
      * 
      * @author G.D.Ponsness
      * @param lineItem of Product to be adjusted
@@ -430,14 +1291,16 @@ public class Store implements Serializable {
     private String adjustInventory(LineItem lineItem) {
         String orderPlaced = "";
         Product product = lineItem.getProduct();
-        int newStock = product.getStockOnHand() - lineItem.getPurchaseAmount();
-        System.out.println("Adjusting for " + product.getName());
-        product.setStockOnHand(newStock);
-        if (newStock <= product.getReorderLevel()) {
+        int amount = lineItem.getPurchaseAmount();
+        int newStock = inventory.addStockOnHand(product, -amount);
+        if (newStock > product.getReorderLevel()
+                || orders.searchProduct(product.getId()) != null) {
+            return orderPlaced;
+        }
+        int reorderAmount = product.getReorderLevel() * 2;
+        Order reorder = orders.placeOrder(product, reorderAmount);
+        if (reorder != null) {
             System.out.println("Order placed for " + product.getName());
-            int reorderAmount = product.getReorderLevel() * 2;
-            Order reorder = new Order(product, reorderAmount);
-            orders.insertOrder(reorder);
             orderPlaced += String.format(
                     "%d items have been ordered for %s\n(Order id: %s)\n",
                     reorderAmount, product.getName(), reorder.getId());
@@ -458,8 +1321,9 @@ public class Store implements Serializable {
     public Result enrollMember(Request request) {
         Result result = new Result();
         Member member = new Member(request.getMemberName(),
-                request.getMemberAddress(), request.getMemberPhone(),
-                request.getMemberFee());
+                strings.intern(request.getMemberAddress()),
+                request.getMemberPhone(),
+                strings.intern(request.getMemberFee()));
         if (members.insertMember(member)) {
             result.setResultCode(Result.OPERATION_COMPLETED);
             result.setMemberFields(member);
@@ -514,6 +1378,44 @@ public class Store implements Serializable {
         return result;
     }
 
+    /**
+     * Searches for the member with a given phone number. Only the digits of the
+     * number are compared.
+     * 
+     * @param request the member phone holds the number to search for
+     * @return result with the member fields, or NO_SUCH_MEMBER
+     */
+    public Result searchPhone(Request request) {
+        Result result = new Result();
+        Member member = members.searchPhone(request.getMemberPhone());
+        if (member == null) {
+            result.setResultCode(Result.NO_SUCH_MEMBER);
+        } else {
+            result.setResultCode(Result.OPERATION_COMPLETED);
+            result.setMemberFields(member);
+        }
+        return result;
+    }
+
+    /**
+     * Changes the phone number of a member
+     * 
+     * @param request the member id and the new member phone
+     * @return result with the member fields, or NO_SUCH_MEMBER
+     */
+    public Result changePhone(Request request) {
+        Result result = new Result();
+        Member member = members.search(request.getMemberId());
+        if (member == null) {
+            result.setResultCode(Result.NO_SUCH_MEMBER);
+            return result;
+        }
+        members.changePhone(member, request.getMemberPhone());
+        result.setResultCode(Result.OPERATION_COMPLETED);
+        result.setMemberFields(member);
+        return result;
+    }
+
     /**
      * Method to process a shipment when it arrives at the store. There is one
      * product per order. Quantity in stock is updated based on the quantity on
@@ -531,15 +1433,15 @@ public class Store implements Serializable {
             return result;
         }
         result.setOrderFields(order);
-        Request.instance().setProductId(order.getProductOrdered().getId());
-        Product product = inventory.search(request.getProductId());
+        Product product = inventory.search(order.getProductOrdered().getId());
         if (product == null) {
             result.setResultCode(Result.PRODUCT_NOT_FOUND);
             return result;
         }
-        product.setStockOnHand(
-                order.getQtyOrdered() + product.getStockOnHand());
-        order.updateStatus(false);
+        if (!orders.fulfillOrder(order, product)) {
+            result.setResultCode(Result.NO_ORDER_FOUND);
+            return result;
+        }
         result.setProductFields(product);
         result.setResultCode(Result.OPERATION_COMPLETED);
         return result;
@@ -559,25 +1461,71 @@ public class Store implements Serializable {
         if (member == null) {
             return new LinkedList<Result>().iterator();
         }
-        return new SafeIterator<Transaction>(
-                member.getTransactionsBetweenDates(request.getBeginDate(),
-                        request.getEndDate()),
+        Iterator<Transaction> selected;
+        Lock lock = memberLocks.lockFor(member.getId());
+        lock.lock();
+        try {
+            selected = copy(member.getTransactionsBetweenDates(
+                    request.getBeginDate(), request.getEndDate()));
+        } finally {
+            lock.unlock();
+        }
+        return new SafeIterator<Transaction>(selected,
                 SafeIterator.TRANSACTION);
 //		return member.getTransactionsBetweenDates(request.getBeginDate(), request.getEndDate());
     }
 
     /**
-     * Retrieves a deserialized version of the store from disk
+     * Returns an iterator to the transactions of all members between the begin
+     * and end dates of the request. Only the days in the range are visited.
+     * If the range reaches back before the archived time, the archived
+     * transactions are gathered from the archives of the members, including
+     * members removed after archiving.
      * 
-     * @return a Store object
+     * @param request the begin and end dates of the range
+     * @return an Iterator to Result - only the current transaction is valid.
+     */
+    public Iterator<Result> getAllTransactions(Request request) {
+        Iterator<Transaction> recent = transactions.getTransactionsBetweenDates(
+                request.getBeginDate(), request.getEndDate());
+        long archivedBefore = transactions.getArchivedBefore();
+        if (request.getBeginDate().getTimeInMillis() >= archivedBefore) {
+            return new SafeIterator<Transaction>(recent,
+                    SafeIterator.TRANSACTION);
+        }
+        List<Transaction> all = new ArrayList<Transaction>();
+        for (Member member : transactions.getArchivingMembers()) {
+            Lock lock = memberLocks.lockFor(member.getId());
+            lock.lock();
+            try {
+                member.getArchivedTransactionsBetweenDates(
+                        request.getBeginDate(), request.getEndDate())
+                        .forEachRemaining(all::add);
+            } finally {
+                lock.unlock();
+            }
+        }
+        recent.forEachRemaining(all::add);
+        all.sort(Comparator.comparingLong(Transaction::getTimeInMillis));
+        return new SafeIterator<Transaction>(all.iterator(),
+                SafeIterator.TRANSACTION);
+    }
+
+    /**
+     * Retrieves a deserialized version of the store from disk. The store is
+     * only replaced if the whole file could be read.
+     * 
+     * @return a Store object, or null if the file is missing or was written
+     *         in an older format
      */
     public static Store retrieve() {
-        try {
-            FileInputStream file = new FileInputStream("StoreData");
+        try (FileInputStream file = new FileInputStream("StoreData")) {
             ObjectInputStream input = new ObjectInputStream(file);
-            store = (Store) input.readObject();
+            Store retrieved = (Store) input.readObject();
+            retrieved.internMemberFields();
             Member.retrieve(input);
             Order.retrieve(input);
+            store = retrieved;
             return store;
         } catch (IOException ioe) {
             ioe.printStackTrace();
@@ -585,15 +1533,33 @@ public class Store implements Serializable {
         } catch (ClassNotFoundException cnfe) {
             cnfe.printStackTrace();
             return null;
+        } catch (ClassCastException cce) {
+            cce.printStackTrace();
+            return null;
         }
     }
 
     /**
-     * Serializes the Store object
+     * Rebuilds the string pool after the store is read back, sharing the
+     * repeated member fields again.
+     */
+    private void internMemberFields() {
+        strings = new StringPool();
+        for (Member member : members) {
+            member.setAddress(strings.intern(member.getAddress()));
+            member.setFee(strings.intern(member.getFee()));
+        }
+    }
+
+    /**
+     * Serializes the Store object. Member fields shared through the string
+     * pool are written once; later uses are written as references to it.
      * 
      * @return true if the data could be saved
      */
     public static boolean save() {
+        store.productLocks.lockAll();
+        store.memberLocks.lockAll();
         try {
             FileOutputStream file = new FileOutputStream("StoreData");
             ObjectOutputStream output = new ObjectOutputStream(file);
@@ -605,18 +1571,21 @@ public class Store implements Serializable {
         } catch (IOException ioe) {
             ioe.printStackTrace();
             return false;
+        } finally {
+            store.memberLocks.unlockAll();
+            store.productLocks.unlockAll();
         }
     }
 
     /**
      * Method to retrieve a list of all outstanding orders. An order is
      * considered outstanding if the orderOutstanding field in Order is true.
-     * The method returns a filtered iterator that is used by UserInterface's
+     * The method returns an iterator that is used by UserInterface's
      * getOutstandingOrders() method.
      * 
      * @author Marc Wedo
      * @param None
-     * @return Filtered Iterator that iterates through only outstanding orders
+     * @return Iterator that iterates through only outstanding orders
      */
     public Iterator<Order> getOutstandingOrders() {
         Iterator<Order> iterator = orders.getOutstandingOrders();
@@ -647,6 +1616,66 @@ public class Store implements Serializable {
                 SafeIterator.PRODUCT);
     }
 
+    /**
+     * Returns the value of all stock on hand at current prices
+     * 
+     * @return the value in dollar format
+     */
+    public String getInventoryValue() {
+        return "$" + Money.format(inventory.getValue());
+    }
+
+    /**
+     * Returns an iterator to Product info for the products closest to running
+     * out, that is with the least stock on hand above their reorder level. The
+     * lowest come first.
+     * 
+     * @param count the number of products wanted
+     * @return an Iterator to Result - only the Product fields are valid.
+     */
+    public Iterator<Result> getLowStockProducts(int count) {
+        return new SafeIterator<Product>(inventory.searchLowStock(count),
+                SafeIterator.PRODUCT);
+    }
+
+    /**
+     * Returns an iterator to Member info for the members whose name starts with
+     * the member name in the request, ignoring case. Only the matching members
+     * are visited.
+     * 
+     * @param request the member name holds the prefix to search for
+     * @return an Iterator to Result - only the Member fields are valid.
+     */
+    public Iterator<Result> retrieveMembers(Request request) {
+        return new SafeIterator<Member>(
+                members.searchPrefix(request.getMemberName()),
+                SafeIterator.MEMBER);
+    }
+
+    /**
+     * Returns an iterator to Product info for the products whose name starts
+     * with the product name in the request, ignoring case. Only the matching
+     * products are visited.
+     * 
+     * @param request the product name holds the prefix to search for
+     * @return an Iterator to Result - only the Product fields are valid.
+     */
+    public Iterator<Result> retrieveProducts(Request request) {
+        return new SafeIterator<Product>(
+                inventory.searchPrefix(request.getProductName()),
+                SafeIterator.PRODUCT);
+    }
+
+    /*
+     * Copies the elements left in an iterator, so that the copy can be walked
+     * after the lock guarding the collection is released.
+     */
+    private static <T> Iterator<T> copy(Iterator<T> iterator) {
+        List<T> elements = new ArrayList<T>();
+        iterator.forEachRemaining(elements::add);
+        return elements.iterator();
+    }
+
     /**
      * String form of the store
      */
@@ -0,0 +1,36 @@
+package business.tests;
+
+import business.facade.Request;
+import business.facade.Result;
+import business.facade.Store;
+
+/**
+ * Loads a large catalog through Store.addProduct() and prints the time taken
+ * by each batch of inserts. With the id and name indexes in Inventory the time
+ * per batch should stay flat as the catalog grows.
+ */
+public class AddProductBenchmark {
+	private static final int PRODUCTS = 100000;
+	private static final int BATCH = 10000;
+
+	public static void main(String[] args) {
+		Store store = Store.instance();
+		Request request = Request.instance();
+		long start = System.nanoTime();
+		for (int count = 1; count <= PRODUCTS; count++) {
+			request.setProductName("Product " + count);
+			request.setProductId("B" + count);
+			request.setProductStockOnHand(100);
+			request.setProductPrice("1.00");
+			request.setProductReorderLevel(10);
+			Result result = store.addProduct(request);
+			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+			if (count % BATCH == 0) {
+				long end = System.nanoTime();
+				System.out.println(String.format("%7d products: %6.1f ms for the last %d inserts", count,
+						(end - start) / 1e6, BATCH));
+				start = end;
+			}
+		}
+	}
+}
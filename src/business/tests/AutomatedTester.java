@@ -1,10 +1,30 @@
 package business.tests;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Calendar;
 import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import business.entities.Member;
+import business.entities.Order;
 import business.entities.Product;
+import business.entities.Transaction;
+import business.entities.helpers.ArrayProductTable;
+import business.entities.helpers.IdAllocator;
+import business.entities.helpers.LineItem;
+import business.entities.helpers.MappedProductTable;
+import business.entities.helpers.ProductTable;
+import business.entities.helpers.SnapshotLog;
+import business.facade.Lane;
 import business.facade.Request;
 import business.facade.Result;
 import business.facade.Store;
@@ -53,6 +73,27 @@ public class AutomatedTester {
 		}
 	}
 
+	/**
+	 * Tests looking up members by phone number, before and after a change of
+	 * number.
+	 */
+	public void testSearchPhone() {
+		Request.instance().setMemberPhone("(234) 5678");
+		Result result = Store.instance().searchPhone(Request.instance());
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		assert result.getMemberName().equals(memberNames[1]);
+		Request.instance().setMemberId(result.getMemberId());
+		Request.instance().setMemberPhone("234-0000");
+		result = Store.instance().changePhone(Request.instance());
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		Request.instance().setMemberPhone("234-5678");
+		result = Store.instance().searchPhone(Request.instance());
+		assert result.getResultCode() == Result.NO_SUCH_MEMBER;
+		Request.instance().setMemberPhone("2340000");
+		result = Store.instance().searchPhone(Request.instance());
+		assert result.getMemberName().equals(memberNames[1]);
+	}
+
 	/**
 	 * Tests Member Removal.
 	 * 
@@ -70,8 +111,12 @@ public class AutomatedTester {
 		assert result.getMemberName().equals("Member Beingremoved");
 		assert result.getMemberPhone().equals("555-5555");
 		Request.instance().setMemberId(result.getMemberId());
+		Request.instance().setMemberName("member being");
+		assert Store.instance().retrieveMembers(Request.instance()).hasNext();
 		result = Store.instance().removeMember(Request.instance());
 		assert result.getResultCode() == Result.OPERATION_COMPLETED : result.getResultCode();
+		assert Store.instance().retrieveMembers(Request.instance()).hasNext() == false;
+		assert Store.instance().searchPhone(Request.instance()).getResultCode() == Result.NO_SUCH_MEMBER;
 		result = Store.instance().removeMember(Request.instance());
 		assert result.getResultCode() == Result.NO_SUCH_MEMBER : result.getResultCode();
 	}
@@ -105,6 +150,52 @@ public class AutomatedTester {
 		assert result.getResultCode() == Result.NAME_IN_USE : result.getResultCode();
 	}
 
+	/**
+	 * Tests the inventory valuation against the test bed, before any sale.
+	 */
+	public void testInventoryValue() {
+		BigDecimal value = BigDecimal.ZERO;
+		for (int count = 0; count < products.length; count++) {
+			value = value.add(new BigDecimal(currentPrice[count]).multiply(BigDecimal.valueOf(stockOnHand[count])));
+		}
+		String expected = "$" + value.setScale(2).toPlainString();
+		assert Store.instance().getInventoryValue().equals(expected) : Store.instance().getInventoryValue();
+	}
+
+	/**
+	 * Tests the product name policy. Names that differ from an existing name only
+	 * in case or whitespace are rejected once the policy is relaxed.
+	 */
+	public void testProductNamePolicy() {
+		Request.instance().setProductName("  soda   12PK ");
+		Request.instance().setProductId("P21");
+		Request.instance().setProductStockOnHand(5);
+		Request.instance().setProductPrice("5.00");
+		Request.instance().setProductReorderLevel(10);
+		Store.instance().setProductNamePolicy(true, true);
+		Result result = Store.instance().addProduct(Request.instance());
+		assert result.getResultCode() == Result.NAME_IN_USE : result.getResultCode();
+		Store.instance().setProductNamePolicy(false, false);
+	}
+
+	/**
+	 * Tests the product search by partial name. Only products whose name starts
+	 * with the prefix, in any case, are returned.
+	 */
+	public void testRetrieveProducts() {
+		Request.instance().setProductName("apple");
+		Iterator<Result> results = Store.instance().retrieveProducts(Request.instance());
+		int found = 0;
+		while (results.hasNext()) {
+			Result result = results.next();
+			assert result.getProductName().startsWith("Apple") : result.getProductName();
+			found++;
+		}
+		assert found == 2 : found;
+		Request.instance().setProductName("xyz");
+		assert Store.instance().retrieveProducts(Request.instance()).hasNext() == false;
+	}
+
 	/**
 	 * Test checkOutItems
 	 */
@@ -122,8 +213,80 @@ public class AutomatedTester {
 		}
 		result = Store.instance().displayPurchases(Request.instance());
 		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		assert result.getTransactionResult().endsWith("$76.50") : result.getTransactionResult();
 		result = Store.instance().finalizeTransaction(Request.instance());
 		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		// Eggs and Corn Chips are at their reorder level but already on order
+		assert result.getTransactionResult().isEmpty() : result.getTransactionResult();
+	}
+
+	/**
+	 * Tests a transaction with many items. Every line item is decoded to the
+	 * product that was sold, not to a copy of it, also after the transaction is
+	 * trimmed.
+	 */
+	public void testTransactionItems() {
+		ProductTable table = new ArrayProductTable();
+		Product product = new Product("Test Item", "T1", 125, 1, 100, table);
+		Transaction transaction = new Transaction();
+		for (int count = 0; count < 100; count++) {
+			transaction.addItem(product, 1);
+		}
+		transaction.trimToSize();
+		assert transaction.getPurchaseTotal().equals("$125.00") : transaction.getPurchaseTotal();
+		int items = 0;
+		for (Iterator<LineItem> iterator = transaction.getLineItems(); iterator.hasNext(); items++) {
+			LineItem item = iterator.next();
+			assert item.getProduct() == product;
+		}
+		assert items == 100 : items;
+		assert table.getProduct(product.getOrdinal()) == product;
+	}
+
+	/**
+	 * Tests the memory-mapped product table. Rows are found by id and read back
+	 * unchanged after the table is mapped again, also once the id index has
+	 * grown, and a serialized table holds only its file name.
+	 */
+	public void testMappedProductTable() {
+		String longName = "Long Name " + "x".repeat(300);
+		try {
+			String fileName = Files.createTempDirectory("catalog").resolve("products").toString();
+			try (MappedProductTable table = new MappedProductTable(fileName)) {
+				for (int count = 0; count < 3000; count++) {
+					table.add("MP" + count, count == 7 ? longName : "Mapped " + count, count, 5, 100 + count);
+				}
+				int stock = table.addStockOnHand(table.ordinalOf("MP42"), -2);
+				assert stock == 40 : stock;
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (MappedProductTable table = new MappedProductTable(fileName);
+					ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+				assert table.size() == 3000 : table.size();
+				int ordinal = table.ordinalOf("MP42");
+				assert table.getId(ordinal).equals("MP42");
+				assert table.getName(ordinal).equals("Mapped 42");
+				assert table.getStockOnHand(ordinal) == 40 : table.getStockOnHand(ordinal);
+				assert table.getPrice(ordinal) == 142 : table.getPrice(ordinal);
+				assert table.getName(table.ordinalOf("MP7")).equals(longName);
+				assert table.ordinalOf("MP3000") == -1;
+				output.writeObject(table);
+			}
+			assert bytes.size() < 1024 : bytes.size();
+			try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+					MappedProductTable table = (MappedProductTable) input.readObject()) {
+				assert table.size() == 3000 : table.size();
+				for (int count = 0; count < 3000; count += 299) {
+					int ordinal = table.ordinalOf("MP" + count);
+					assert ordinal == count : ordinal;
+					assert table.getReorderLevel(ordinal) == 5;
+				}
+			}
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		} catch (ClassNotFoundException cnfe) {
+			throw new IllegalStateException(cnfe);
+		}
 	}
 
 	/**
@@ -135,7 +298,8 @@ public class AutomatedTester {
 	 * received. It then shows that the Product's stock on hand has been increased
 	 * to 14 units. (Reorder level for this product is 5, so a new order will always
 	 * be 10 units.) Finally, the test runs with order #O200, which does not exist,
-	 * to show that the NO_ORDER_FOUND code was received.
+	 * to show that the NO_ORDER_FOUND code was received. A shipment can only be
+	 * processed once, after which the order is no longer outstanding.
 	 * 
 	 * @author Marc Wedo
 	 */
@@ -144,12 +308,75 @@ public class AutomatedTester {
 		Result result = Store.instance().processShipment(Request.instance());
 		assert result.getResultCode() == Result.OPERATION_COMPLETED;
 		assert result.getProductStockOnHand() == 14;
+		result = Store.instance().processShipment(Request.instance());
+		assert result.getResultCode() == Result.NO_ORDER_FOUND;
+		Iterator<Order> orders = Store.instance().getOutstandingOrders();
+		while (orders.hasNext()) {
+			Order order = orders.next();
+			assert !order.getId().equals("O1");
+		}
 
 		Request.instance().setOrderId("O200");
 		result = Store.instance().processShipment(Request.instance());
 		assert result.getResultCode() == Result.NO_ORDER_FOUND;
 	}
 
+	/**
+	 * Tests the reorder rule: a sale that leaves a product at or below its
+	 * reorder level places an order unless one is outstanding, even if the
+	 * stock was already at or below the level before the sale. The product is
+	 * oversold while its first order is outstanding, so the shipment leaves it
+	 * below the level.
+	 */
+	public void testReorderBelowLevel() {
+		Request.instance().setProductName("Reorder Test");
+		Request.instance().setProductId("R1");
+		Request.instance().setProductStockOnHand(2);
+		Request.instance().setProductPrice("1.00");
+		Request.instance().setProductReorderLevel(5);
+		Result result = Store.instance().addProduct(Request.instance());
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		Lane lane = Store.instance().openLane();
+		lane.beginTransaction("M3");
+		lane.checkOutItem("R1", 10);
+		String ordered = lane.finalizeTransaction().getTransactionResult();
+		assert ordered.isEmpty() : ordered;
+
+		Order order = null;
+		for (Iterator<Order> orders = Store.instance().getOutstandingOrders(); orders.hasNext();) {
+			Order next = orders.next();
+			if (next.getProductOrdered().getId().equals("R1")) {
+				order = next;
+			}
+		}
+		Request.instance().setOrderId(order.getId());
+		result = Store.instance().processShipment(Request.instance());
+		assert result.getProductStockOnHand() == 2 : result.getProductStockOnHand();
+
+		lane.beginTransaction("M3");
+		lane.checkOutItem("R1", 1);
+		ordered = lane.finalizeTransaction().getTransactionResult();
+		assert ordered.contains("10 items have been ordered for Reorder Test") : ordered;
+		lane.beginTransaction("M3");
+		lane.checkOutItem("R1", 1);
+		ordered = lane.finalizeTransaction().getTransactionResult();
+		assert ordered.isEmpty() : ordered;
+	}
+
+	/**
+	 * Tests the low stock query. After the checkout and the shipment of Eggs,
+	 * Corn Chips is at its reorder level and Apples is one above it; every other
+	 * product has at least five more than its reorder level.
+	 */
+	public void testLowStockProducts() {
+		Iterator<Result> results = Store.instance().getLowStockProducts(2);
+		String first = results.next().getProductId();
+		String second = results.next().getProductId();
+		assert first.equals("P2") : first;
+		assert second.equals("P3") : second;
+		assert results.hasNext() == false;
+	}
+
 	/**
 	 * Test changePrice
 	 */
@@ -162,9 +389,55 @@ public class AutomatedTester {
 		assert Request.instance().getProductPrice().equals("2.99");
 		Result result = Store.instance().changePrice(Request.instance());
 		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		assert result.getProductPrice().equals("2.99") : result.getProductPrice();
 		Request.instance().setProductId("P50");
 		result = Store.instance().changePrice(Request.instance());
 		assert result.getResultCode() == Result.PRODUCT_NOT_FOUND;
+		Request.instance().setProductId("P20");
+		for (String price : new String[] { "NaN", "Infinity", "1.5d" }) {
+			Request.instance().setProductPrice(price);
+			result = Store.instance().changePrice(Request.instance());
+			assert result.getResultCode() == Result.OPERATION_FAILED : price;
+			Request.instance().setProductId("P21");
+			Request.instance().setProductName("Unpriced");
+			result = Store.instance().addProduct(Request.instance());
+			assert result.getResultCode() == Result.OPERATION_FAILED : price;
+			Request.instance().setProductId("P20");
+		}
+		Request.instance().setProductPrice("2.99");
+		result = Store.instance().changePrice(Request.instance());
+		assert result.getProductPrice().equals("2.99") : result.getProductPrice();
+	}
+
+	/**
+	 * Tests that past receipts keep the price paid and that the price history
+	 * answers for dates before and after a price change.
+	 */
+	public void testPriceHistory() {
+		Calendar beforeChange = Calendar.getInstance();
+		beforeChange.add(Calendar.SECOND, -1);
+		Request.instance().setProductId("P1");
+		Request.instance().setProductPrice("5.25");
+		Result result = Store.instance().changePrice(Request.instance());
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+
+		Calendar beginDate = Calendar.getInstance();
+		beginDate.add(Calendar.DATE, -1);
+		Calendar endDate = Calendar.getInstance();
+		endDate.add(Calendar.SECOND, 1);
+		Request.instance().setMemberId("M1");
+		Request.instance().setBeginDate(beginDate);
+		Request.instance().setEndDate(endDate);
+		String receipt = Store.instance().getTransactions(Request.instance()).next().getCurrentTransaction()
+				.toString();
+		assert receipt.contains("$4.50") && !receipt.contains("$5.25") : receipt;
+
+		Request.instance().setDate(beforeChange);
+		result = Store.instance().getPriceOnDate(Request.instance());
+		assert result.getProductPrice().equals("4.50") : result.getProductPrice();
+		Request.instance().setDate(endDate);
+		result = Store.instance().getPriceOnDate(Request.instance());
+		assert result.getProductPrice().equals("5.25") : result.getProductPrice();
 	}
 
 	/**
@@ -176,14 +449,18 @@ public class AutomatedTester {
 		Calendar beginDate = Calendar.getInstance();
 		beginDate.set(2012, Calendar.JULY, 1, 0, 0, 0);
 		Calendar endDate = Calendar.getInstance();
+		endDate.add(Calendar.SECOND, 1);
 		Request.instance().setMemberId("M1");
 		Request.instance().setBeginDate(beginDate);
 		Request.instance().setEndDate(endDate);
 		Iterator<Result> results = Store.instance().getTransactions(Request.instance());
+		int found = 0;
 		while (results.hasNext()) {
 			Result result = (Result) results.next();
 			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+			found++;
 		}
+		assert found == 1 : found;
 
 		endDate.set(2013, Calendar.JULY, 1, 0, 0, 0);
 		Request.instance().setEndDate(endDate);
@@ -195,13 +472,296 @@ public class AutomatedTester {
 		assert results.hasNext() == false;
 	}
 
+	/**
+	 * Automated test method for the store wide transaction query. The checkout
+	 * made by testCheckOutItems() is the only transaction in the store.
+	 */
+	public void testGetAllTransactions() {
+		Calendar beginDate = Calendar.getInstance();
+		beginDate.add(Calendar.DATE, -7);
+		Calendar endDate = Calendar.getInstance();
+		endDate.add(Calendar.SECOND, 1);
+		Request.instance().setBeginDate(beginDate);
+		Request.instance().setEndDate(endDate);
+		Iterator<Result> results = Store.instance().getAllTransactions(Request.instance());
+		assert results.hasNext();
+		results.next();
+		assert results.hasNext() == false;
+
+		endDate = (Calendar) beginDate.clone();
+		beginDate.add(Calendar.DATE, -7);
+		Request.instance().setEndDate(endDate);
+		results = Store.instance().getAllTransactions(Request.instance());
+		assert results.hasNext() == false;
+	}
+
+	/**
+	 * Automated test method for archiving transactions. After the archive the
+	 * checkout made by testCheckOutItems() is read back from the segment file of
+	 * the member. A member removed before the archive keeps its transaction in
+	 * the store-wide history, and a transaction finalized after an archive run
+	 * but begun before it is merged into the segment in time order.
+	 */
+	public void testArchiveTransactions() {
+		String directory = Store.instance().getArchiveDirectory();
+		Path archive;
+		try {
+			archive = Files.createTempDirectory("archive");
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		Store.instance().setArchiveDirectory(archive.toString());
+		try {
+			Request.instance().setMemberName("Member Archived");
+			Request.instance().setMemberAddress("1 Archive Rd");
+			Request.instance().setMemberPhone("555-0101");
+			Request.instance().setMemberFee("20");
+			String removedId = Store.instance().enrollMember(Request.instance()).getMemberId();
+			Lane lane = Store.instance().openLane();
+			Result result = lane.beginTransaction(removedId);
+			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+			result = lane.checkOutItem("P5", 1);
+			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+			result = lane.finalizeTransaction();
+			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+			Request.instance().setMemberId(removedId);
+			result = Store.instance().removeMember(Request.instance());
+			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+
+			Lane late = Store.instance().openLane();
+			result = late.beginTransaction("M5");
+			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+			result = late.checkOutItem("P6", 1);
+			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+			Thread.sleep(5);
+			result = lane.beginTransaction("M5");
+			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+			result = lane.checkOutItem("P6", 1);
+			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+			result = lane.finalizeTransaction();
+			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+
+			Calendar cutoff = Calendar.getInstance();
+			cutoff.add(Calendar.SECOND, 1);
+			Request.instance().setDate(cutoff);
+			boolean archived = Store.instance().archiveTransactions(Request.instance());
+			assert archived;
+			long segmentSize = Files.size(archive.resolve("M5.seg"));
+			result = late.finalizeTransaction();
+			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+			archived = Store.instance().archiveTransactions(Request.instance());
+			assert archived;
+			long mergedSize = Files.size(archive.resolve("M5.seg"));
+			assert mergedSize == 2 * segmentSize : mergedSize;
+
+			Calendar beginDate = Calendar.getInstance();
+			beginDate.add(Calendar.DATE, -1);
+			Calendar endDate = (Calendar) cutoff.clone();
+			endDate.add(Calendar.SECOND, 1);
+			Request.instance().setMemberId("M1");
+			Request.instance().setBeginDate(beginDate);
+			Request.instance().setEndDate(endDate);
+			Iterator<Result> results = Store.instance().getTransactions(Request.instance());
+			assert results.hasNext();
+			String receipt = results.next().getCurrentTransaction().toString();
+			assert receipt.contains("$4.50") : receipt;
+			assert results.hasNext() == false;
+
+			Request.instance().setMemberId("M5");
+			results = Store.instance().getTransactions(Request.instance());
+			long previous = Long.MIN_VALUE;
+			int count = 0;
+			for (; results.hasNext(); count++) {
+				long time = results.next().getCurrentTransaction().getTimeInMillis();
+				assert time >= previous;
+				previous = time;
+			}
+			assert count == 2 : count;
+
+			results = Store.instance().getAllTransactions(Request.instance());
+			previous = Long.MIN_VALUE;
+			count = 0;
+			for (; results.hasNext(); count++) {
+				long time = results.next().getCurrentTransaction().getTimeInMillis();
+				assert time >= previous;
+				previous = time;
+			}
+			assert count == 4 : count;
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		} catch (InterruptedException ie) {
+			throw new AssertionError(ie);
+		} finally {
+			Store.instance().setArchiveDirectory(directory);
+		}
+	}
+
+	/**
+	 * Automated test method for checkout lanes. Two lanes ring up different
+	 * members at the same time; each receipt holds only its own items.
+	 */
+	public void testLanes() {
+		Lane first = Store.instance().openLane();
+		Lane second = Store.instance().openLane();
+		Result result = first.checkOutItem("P2", 1);
+		assert result.getResultCode() == Result.OPERATION_FAILED;
+		result = first.beginTransaction("M3");
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		result = second.beginTransaction("M4");
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		result = second.beginTransaction("NN1");
+		assert result.getResultCode() == Result.NO_SUCH_MEMBER;
+		result = second.beginTransaction("M4");
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		result = first.checkOutItem("P2", 1);
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		result = second.checkOutItem("P3", 2);
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		result = second.checkOutItem("NP1", 1);
+		assert result.getResultCode() == Result.PRODUCT_NOT_FOUND;
+		String receipt = first.displayPurchases().getTransactionResult();
+		assert receipt.contains("Corn Chips") && !receipt.contains("Apples 2lb") : receipt;
+		receipt = second.displayPurchases().getTransactionResult();
+		assert receipt.contains("Apples 2lb") && !receipt.contains("Corn Chips") : receipt;
+
+		result = first.finalizeTransaction();
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		assert result.getMemberId().equals("M3");
+		result = first.finalizeTransaction();
+		assert result.getResultCode() == Result.OPERATION_FAILED;
+		result = second.cancelTransaction();
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		assert second.hasTransaction() == false;
+	}
+
+	/**
+	 * Automated test method for id allocation. Ids taken on several threads at
+	 * once are all different, many short-lived threads leave at most one
+	 * partly used block per stripe, and a restored allocator continues after
+	 * the saved high-water mark.
+	 */
+	public void testConcurrentIds() {
+		IdAllocator shared = new IdAllocator(8, 4);
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		Thread[] threads = new Thread[4];
+		for (int count = 0; count < threads.length; count++) {
+			threads[count] = new Thread(() -> {
+				for (int id = 0; id < 100; id++) {
+					ids.add(shared.next());
+				}
+			});
+			threads[count].start();
+		}
+		join(threads);
+		assert ids.size() == 400 : ids.size();
+
+		IdAllocator striped = new IdAllocator(32, 2);
+		threads = new Thread[200];
+		for (int count = 0; count < threads.length; count++) {
+			threads[count] = new Thread(() -> striped.next());
+			threads[count].start();
+		}
+		join(threads);
+		assert striped.getHighWater() <= 200 + 2 * 32 : striped.getHighWater();
+
+		IdAllocator allocator = new IdAllocator(8);
+		long first = allocator.next();
+		assert first == 1 : first;
+		allocator.restore(100);
+		long restored = allocator.next();
+		assert restored == 101 : restored;
+		assert allocator.getHighWater() == 108 : allocator.getHighWater();
+	}
+
+	private void join(Thread[] threads) {
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException ie) {
+				throw new IllegalStateException(ie);
+			}
+		}
+	}
+
+	/**
+	 * Automated test method for snapshot reads. A member listing started
+	 * before members are enrolled and removed sees the members as they were
+	 * when it started, also after the removed entries are compacted away.
+	 */
+	public void testSnapshotReads() {
+		int before = 0;
+		for (Iterator<Result> iterator = Store.instance().getMembers(); iterator.hasNext(); iterator.next()) {
+			before++;
+		}
+		Iterator<Result> listing = Store.instance().getMembers();
+		Request request = Request.create();
+		request.setMemberName("Snapshot Member");
+		request.setMemberAddress(addresses[0]);
+		request.setMemberPhone(phones[0]);
+		request.setMemberFee(fee[0]);
+		request.setMemberId(Store.instance().enrollMember(request).getMemberId());
+		request.setMemberId("M2");
+		Result removed = Store.instance().removeMember(request);
+		assert removed.getResultCode() == Result.OPERATION_COMPLETED;
+		int seen = 0;
+		boolean removedSeen = false;
+		while (listing.hasNext()) {
+			Result result = listing.next();
+			assert !result.getMemberName().equals("Snapshot Member");
+			removedSeen |= result.getMemberId().equals("M2");
+			seen++;
+		}
+		assert seen == before && removedSeen : seen;
+
+		SnapshotLog<Integer, Integer> log = new SnapshotLog<Integer, Integer>();
+		for (int count = 0; count < 2000; count++) {
+			log.put(count, count);
+		}
+		Iterator<Integer> old = log.iterator();
+		for (int count = 0; count < 1500; count++) {
+			log.remove(count);
+		}
+		assert log.size() == 500 && log.iterator().next() == 1500;
+		for (int count = 0; count < 2000; count++) {
+			int value = old.next();
+			assert value == count : value;
+		}
+		assert old.hasNext() == false;
+
+		Iterator<Integer> unchanged = log.iterator();
+		log.put(1600, -1600);
+		Iterator<Integer> replaced = log.iterator();
+		for (int count = 1500; count < 2000; count++) {
+			int kept = unchanged.next();
+			int current = replaced.next();
+			assert kept == count : kept;
+			assert current == (count == 1600 ? -1600 : count) : current;
+		}
+		assert log.size() == 500 && log.get(1600) == -1600;
+	}
+
 	public void testAll() {
 		testEnrollMember();
+		testSearchPhone();
 		testRemoveMember();
 		testAddProduct();
+		testInventoryValue();
+		testProductNamePolicy();
+		testRetrieveProducts();
 		testCheckOutItems();
+		testTransactionItems();
+		testMappedProductTable();
 		testProcessShipment();
+		testLowStockProducts();
 		testChangePrice();
+		testGetTransactions();
+		testGetAllTransactions();
+		testPriceHistory();
+		testArchiveTransactions();
+		testLanes();
+		testConcurrentIds();
+		testSnapshotReads();
+		testReorderBelowLevel();
 	}
 
 	public static void main(String[] args) {
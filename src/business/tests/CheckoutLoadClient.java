@@ -0,0 +1,120 @@
+package business.tests;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import business.facade.Request;
+import business.facade.Store;
+import server.CheckoutServer;
+
+/**
+ * Starts a checkout server on the loopback interface and drives it with 10,
+ * 100 and 1000 simulated lanes, each a connection of its own on a virtual
+ * thread. Every lane repeatedly begins a transaction, scans a few products and
+ * finalizes. The scans per second over all lanes are printed for each run.
+ */
+public class CheckoutLoadClient {
+	private static final int PRODUCTS = 1024;
+	private static final int STOCK = 1000000000;
+	private static final int ITEMS = 5;
+	private static final int[] LANES = { 10, 100, 1000 };
+	private static final long RUN_MILLIS = 3000;
+
+	public static void main(String[] args) throws Exception {
+		Store store = Store.instance();
+		Request request = Request.create();
+		for (int count = 0; count < PRODUCTS; count++) {
+			request.setProductName("Product " + count);
+			request.setProductId("L" + count);
+			request.setProductStockOnHand(STOCK);
+			request.setProductPrice("1.00");
+			request.setProductReorderLevel(1);
+			store.addProduct(request);
+		}
+		List<String> members = new ArrayList<String>();
+		for (int count = 0; count < LANES[LANES.length - 1]; count++) {
+			request.setMemberName("Lane " + count);
+			request.setMemberAddress("Store");
+			request.setMemberPhone("555-" + count);
+			request.setMemberFee("10.00");
+			members.add(store.enrollMember(request).getMemberId());
+		}
+		PrintStream out = System.out;
+		try (CheckoutServer server = new CheckoutServer(store, 0)) {
+			server.start();
+			for (int lanes : LANES) {
+				System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+				long scans = run(server.getPort(), members, lanes);
+				System.setOut(out);
+				System.out.println(String.format("%4d lanes: %,10.0f scans/s", lanes,
+						scans / (RUN_MILLIS / 1000.0)));
+			}
+		}
+	}
+
+	private static long run(int port, List<String> members, int lanes) throws InterruptedException {
+		LongAdder scans = new LongAdder();
+		long deadline = System.currentTimeMillis() + RUN_MILLIS;
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int lane = 0; lane < lanes; lane++) {
+				String memberId = members.get(lane);
+				int first = lane;
+				executor.execute(() -> checkOut(port, memberId, first, deadline, scans));
+			}
+		}
+		return scans.sum();
+	}
+
+	/*
+	 * One lane: checks out its member until the deadline.
+	 */
+	private static void checkOut(int port, String memberId, int first, long deadline, LongAdder scans) {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.setTcpNoDelay(true);
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			PrintWriter writer = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+			int next = first;
+			while (System.currentTimeMillis() < deadline) {
+				expectOk(send(writer, reader, "BEGIN " + memberId));
+				for (int item = 0; item < ITEMS; item++) {
+					expectOk(send(writer, reader, "SCAN L" + next++ % PRODUCTS + " 1"));
+					scans.increment();
+				}
+				String reply = send(writer, reader, "FINALIZE");
+				expectOk(reply);
+				int lines = Integer.parseInt(reply.substring(3));
+				for (int line = 0; line < lines; line++) {
+					reader.readLine();
+				}
+			}
+			writer.println("QUIT");
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	private static String send(PrintWriter writer, BufferedReader reader, String line) throws IOException {
+		writer.println(line);
+		return reader.readLine();
+	}
+
+	private static void expectOk(String reply) {
+		if (reply == null || !reply.startsWith("OK")) {
+			throw new IllegalStateException("Unexpected reply " + reply);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package business.tests;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import business.facade.Lane;
+import business.facade.Request;
+import business.facade.Result;
+import business.facade.Store;
+
+/**
+ * Runs checkout lanes on several threads against one store and prints the
+ * checkouts per second for each number of lanes, and the speedup over a single
+ * lane. In the first runs every lane buys its own products for its own member,
+ * so the lanes share no lock and the speedup should follow the number of
+ * processors until the lanes outnumber them; in the last run all lanes buy the
+ * same few products. Warm-up runs come first so that the timed runs measure
+ * compiled code. After each run the stock on hand of every product is checked
+ * against the number of items sold.
+ */
+public class CheckoutStressTest {
+	private static final int PRODUCTS = 1024;
+	private static final int STOCK = 1000000000;
+	private static final int CHECKOUTS = 20000;
+	private static final int ITEMS = 3;
+	private static final int MAX_LANES = Math.max(8, Runtime.getRuntime().availableProcessors());
+	private static final int HOT_PRODUCTS = 4;
+	private static final int WARM_UP_RUNS = 5;
+
+	public static void main(String[] args) throws InterruptedException {
+		Store store = Store.instance();
+		Request request = Request.create();
+		for (int count = 0; count < PRODUCTS; count++) {
+			request.setProductName("Product " + count);
+			request.setProductId("S" + count);
+			request.setProductStockOnHand(STOCK);
+			request.setProductPrice("1.00");
+			request.setProductReorderLevel(1);
+			store.addProduct(request);
+		}
+		List<String> members = new ArrayList<String>();
+		for (int count = 0; count < MAX_LANES; count++) {
+			request.setMemberName("Lane " + count);
+			request.setMemberAddress("Store");
+			request.setMemberPhone("555-" + count);
+			request.setMemberFee("10.00");
+			members.add(store.enrollMember(request).getMemberId());
+		}
+		System.out.println(Runtime.getRuntime().availableProcessors() + " processors");
+		for (int warmUp = 0; warmUp < WARM_UP_RUNS; warmUp++) {
+			run(store, members, MAX_LANES, false);
+		}
+		double single = run(store, members, 1, false);
+		System.out.println(String.format("1 lane: %,10.0f checkouts/s", single));
+		for (int lanes = 2; lanes <= MAX_LANES; lanes *= 2) {
+			double rate = run(store, members, lanes, false);
+			System.out.println(String.format("%d lanes: %,10.0f checkouts/s, speedup %.2f", lanes, rate, rate / single));
+		}
+		double rate = run(store, members, MAX_LANES, true);
+		System.out.println(String.format("%d lanes on %d products: %,10.0f checkouts/s, speedup %.2f", MAX_LANES,
+				HOT_PRODUCTS, rate, rate / single));
+	}
+
+	/*
+	 * Runs the lanes and returns the checkouts per second.
+	 */
+	private static double run(Store store, List<String> members, int lanes, boolean shared)
+			throws InterruptedException {
+		long[] before = stock(store);
+		Thread[] threads = new Thread[lanes];
+		for (int lane = 0; lane < lanes; lane++) {
+			int first = shared ? 0 : lane * (PRODUCTS / lanes);
+			int range = shared ? HOT_PRODUCTS : PRODUCTS / lanes;
+			String memberId = members.get(lane);
+			threads[lane] = new Thread(() -> checkOut(store, memberId, first, range));
+		}
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		long start = System.nanoTime();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsed = System.nanoTime() - start;
+		System.setOut(out);
+		long[] after = stock(store);
+		long sold = 0;
+		for (int index = 0; index < PRODUCTS; index++) {
+			sold += before[index] - after[index];
+		}
+		long expected = (long) lanes * CHECKOUTS * ITEMS;
+		assert sold == expected : sold + " items sold, " + expected + " expected";
+		return lanes * CHECKOUTS / (elapsed / 1e9);
+	}
+
+	/*
+	 * One lane: each checkout buys one of each of ITEMS products from the range
+	 * given to the lane.
+	 */
+	private static void checkOut(Store store, String memberId, int first, int range) {
+		Lane lane = store.openLane();
+		int next = 0;
+		for (int checkout = 0; checkout < CHECKOUTS; checkout++) {
+			lane.beginTransaction(memberId);
+			for (int item = 0; item < ITEMS; item++) {
+				lane.checkOutItem("S" + (first + next++ % range), 1);
+			}
+			Result result = lane.finalizeTransaction();
+			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		}
+	}
+
+	private static long[] stock(Store store) {
+		long[] stock = new long[PRODUCTS];
+		Iterator<Result> products = store.getProduct();
+		while (products.hasNext()) {
+			Result product = products.next();
+			String id = product.getProductId();
+			if (id.startsWith("S")) {
+				stock[Integer.parseInt(id.substring(1))] = product.getProductStockOnHand();
+			}
+		}
+		return stock;
+	}
+}
@@ -0,0 +1,100 @@
+package business.tests;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Iterator;
+
+import business.entities.Order;
+import business.facade.Lane;
+import business.facade.Request;
+import business.facade.Result;
+import business.facade.Store;
+
+/**
+ * Runs checkout lanes on several threads that all buy the same product, and
+ * prints the sales per second for each number of lanes. Each run sells the
+ * product from above its reorder level down to zero, so exactly one reorder
+ * must be placed; the run checks that no sale was lost and that the product has
+ * one outstanding order afterwards.
+ */
+public class HotProductBenchmark {
+	private static final int SALES = 100000;
+	private static final int REORDER_LEVEL = 10;
+	private static final int[] LANES = { 1, 2, 4, 8 };
+
+	public static void main(String[] args) throws InterruptedException {
+		Store store = Store.instance();
+		Request request = Request.create();
+		String[] members = new String[LANES[LANES.length - 1]];
+		for (int count = 0; count < members.length; count++) {
+			request.setMemberName("Lane " + count);
+			request.setMemberAddress("Store");
+			request.setMemberPhone("555-" + count);
+			request.setMemberFee("10.00");
+			members[count] = store.enrollMember(request).getMemberId();
+		}
+		System.out.println(Runtime.getRuntime().availableProcessors() + " processors");
+		for (int lanes : LANES) {
+			String productId = "H" + lanes;
+			request.setProductName("Hot product " + lanes);
+			request.setProductId(productId);
+			request.setProductStockOnHand(lanes * SALES - 2 * REORDER_LEVEL);
+			request.setProductPrice("1.00");
+			request.setProductReorderLevel(REORDER_LEVEL);
+			store.addProduct(request);
+			request.setOrderId(outstandingOrder(store, productId).getId());
+			store.processShipment(request);
+			run(store, members, productId, lanes);
+		}
+	}
+
+	private static void run(Store store, String[] members, String productId, int lanes)
+			throws InterruptedException {
+		Thread[] threads = new Thread[lanes];
+		for (int lane = 0; lane < lanes; lane++) {
+			String memberId = members[lane];
+			threads[lane] = new Thread(() -> {
+				Lane checkout = store.openLane();
+				for (int sale = 0; sale < SALES; sale++) {
+					checkout.beginTransaction(memberId);
+					checkout.checkOutItem(productId, 1);
+					checkout.finalizeTransaction();
+				}
+			});
+		}
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		long start = System.nanoTime();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsed = System.nanoTime() - start;
+		System.setOut(out);
+		Request request = Request.create();
+		request.setProductName(productId.replace("H", "Hot product "));
+		Result product = store.retrieveProducts(request).next();
+		int orders = 0;
+		for (Iterator<Order> iterator = store.getOutstandingOrders(); iterator.hasNext();) {
+			if (iterator.next().getProductOrdered().getId().equals(productId)) {
+				orders++;
+			}
+		}
+		System.out.println(String.format("%d lanes: %,10.0f sales/s, stock left %d, %d reorder placed", lanes,
+				lanes * SALES / (elapsed / 1e9), product.getProductStockOnHand(), orders));
+		assert product.getProductStockOnHand() == 0;
+		assert orders == 1;
+	}
+
+	private static Order outstandingOrder(Store store, String productId) {
+		for (Iterator<Order> iterator = store.getOutstandingOrders(); iterator.hasNext();) {
+			Order order = iterator.next();
+			if (order.getProductOrdered().getId().equals(productId)) {
+				return order;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,258 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import business.facade.Lane;
+import business.facade.Result;
+import business.facade.Store;
+
+/**
+ * A TCP front end for the checkout lanes of the store. Every connection is one
+ * lane: registers and self-checkout kiosks connect, ring up members and
+ * disconnect. Each connection is served on a virtual thread of its own, so
+ * lanes waiting for input cost no platform thread.
+ * 
+ * The protocol is line based. A request is one line:
+ * 
+ * <pre>
+ * BEGIN memberId
+ * SCAN productId amount
+ * DISPLAY
+ * FINALIZE
+ * VOID
+ * QUIT
+ * </pre>
+ * 
+ * Every reply starts with a status line. "OK text" reports success, "ERR code"
+ * a failure. DISPLAY and FINALIZE reply "OK n" followed by n lines holding the
+ * receipt or the orders placed.
+ */
+public class CheckoutServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 5372;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+    private Store store;
+    private ServerSocket serverSocket;
+    private ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Opens the server socket on the loopback address. Connections are
+     * accepted once start() is called.
+     * 
+     * @param store the store served
+     * @param port  the port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public CheckoutServer(Store store, int port) throws IOException {
+        this(store, InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Opens the server socket. Connections are accepted once start() is
+     * called. The protocol has no authentication, so the address should only
+     * be reachable by the store's own registers.
+     * 
+     * @param store   the store served
+     * @param address the local address to listen on
+     * @param port    the port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public CheckoutServer(Store store, InetAddress address, int port)
+            throws IOException {
+        this.store = store;
+        this.serverSocket = new ServerSocket(port, 0, address);
+    }
+
+    /**
+     * Starts accepting connections on a virtual thread
+     */
+    public void start() {
+        connections.submit(this::accept);
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones. Returns once the
+     * requests being served have finished, or after CLOSE_TIMEOUT_SECONDS, so
+     * the store can be saved without lanes still changing it.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+        try {
+            if (!connections.awaitTermination(CLOSE_TIMEOUT_SECONDS,
+                    TimeUnit.SECONDS)) {
+                System.out.println("Connections still open after "
+                        + CLOSE_TIMEOUT_SECONDS + " seconds");
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                connections.submit(() -> serve(socket));
+            }
+        } catch (SocketException se) {
+            // the server socket was closed
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+    }
+
+    /*
+     * Serves one lane until the client quits or disconnects.
+     */
+    private void serve(Socket socket) {
+        Lane lane = store.openLane();
+        try (Socket connection = socket) {
+            connection.setTcpNoDelay(true);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    connection.getInputStream(), StandardCharsets.UTF_8));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    connection.getOutputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] words = line.trim().split("\\s+");
+                if (words[0].equalsIgnoreCase("QUIT")) {
+                    break;
+                }
+                writer.write(process(lane, words));
+                writer.flush();
+            }
+        } catch (SocketException se) {
+            // the client went away
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+    }
+
+    /**
+     * Carries out one request on a lane
+     * 
+     * @param lane  the lane of the connection
+     * @param words the request split into words
+     * @return the reply, ending with a line separator
+     */
+    private String process(Lane lane, String[] words) {
+        switch (words[0].toUpperCase()) {
+        case "BEGIN":
+            if (words.length != 2) {
+                return error("BAD_REQUEST");
+            }
+            Result result = lane.beginTransaction(words[1]);
+            return reply(result, result.getMemberName());
+        case "SCAN":
+            if (words.length != 3) {
+                return error("BAD_REQUEST");
+            }
+            int amount;
+            try {
+                amount = Integer.parseInt(words[2]);
+            } catch (NumberFormatException nfe) {
+                return error("BAD_REQUEST");
+            }
+            if (amount <= 0) {
+                return error("BAD_REQUEST");
+            }
+            result = lane.checkOutItem(words[1], amount);
+            return reply(result, result.getProductName());
+        case "DISPLAY":
+            result = lane.displayPurchases();
+            return replyLines(result, result.getTransactionResult());
+        case "FINALIZE":
+            result = lane.finalizeTransaction();
+            return replyLines(result, result.getTransactionResult());
+        case "VOID":
+            return reply(lane.cancelTransaction(), "");
+        default:
+            return error("BAD_REQUEST");
+        }
+    }
+
+    private String reply(Result result, String text) {
+        if (result.getResultCode() != Result.OPERATION_COMPLETED) {
+            return error(errorCode(result));
+        }
+        return "OK " + text + "\n";
+    }
+
+    private String replyLines(Result result, String text) {
+        if (result.getResultCode() != Result.OPERATION_COMPLETED) {
+            return error(errorCode(result));
+        }
+        String[] lines = text.isEmpty() ? new String[0] : text.split("\n");
+        return "OK " + lines.length + "\n"
+                + (lines.length == 0 ? "" : String.join("\n", lines) + "\n");
+    }
+
+    private String error(String code) {
+        return "ERR " + code + "\n";
+    }
+
+    private String errorCode(Result result) {
+        switch (result.getResultCode()) {
+        case Result.NO_SUCH_MEMBER:
+            return "NO_SUCH_MEMBER";
+        case Result.PRODUCT_NOT_FOUND:
+            return "PRODUCT_NOT_FOUND";
+        default:
+            return "NO_TRANSACTION";
+        }
+    }
+
+    /**
+     * Serves the saved store, or a new one if there is no saved data, on the
+     * port and address given as arguments. The store is saved when the server
+     * is shut down.
+     * 
+     * @param args the port and the address to listen on, both optional; the
+     *             loopback address by default
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        Store store = Store.retrieve();
+        if (store == null) {
+            store = Store.instance();
+        }
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        InetAddress address = args.length > 1 ? InetAddress.getByName(args[1])
+                : InetAddress.getLoopbackAddress();
+        CheckoutServer server = new CheckoutServer(store, address, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException ioe) {
+                ioe.printStackTrace();
+            }
+            if (!Store.save()) {
+                System.out.println("The store could not be saved");
+            }
+        }));
+        System.out.println("Checkout server listening on "
+                + address.getHostAddress() + " port " + server.getPort());
+        server.accept();
+    }
+}